@@ -0,0 +1,84 @@
+package com.personthecat.orestonevariants.world;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.registry.Bootstrap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Compares {@link BlockListRuleTest#test} against the original implementation, which scanned
+ * the list of source blocks. Each invocation tests one chunk section's worth of backgrounds,
+ * most of which are stone, as they would be when spawning stone veins underground.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockListRuleTestBenchmark {
+
+    /** The number of backgrounds tested per invocation. */
+    private static final int SAMPLES = 4096;
+
+    @Param({"1", "4", "8"})
+    public int sources;
+
+    private final Random rand = new Random(0L);
+    private final BlockState[] samples = new BlockState[SAMPLES];
+    private List<BlockState> list;
+    private BlockListRuleTest rule;
+
+    @Setup
+    public void setup() {
+        Bootstrap.register();
+        // Backgrounds which may appear in a section, in order of how often they are sources.
+        final Block[] blocks = {
+            Blocks.STONE, Blocks.ANDESITE, Blocks.DIORITE, Blocks.GRANITE, Blocks.DIRT,
+            Blocks.GRAVEL, Blocks.COAL_ORE, Blocks.IRON_ORE, Blocks.AIR, Blocks.WATER
+        };
+        list = new ArrayList<>();
+        for (int i = 0; i < sources; i++) {
+            list.add(blocks[i].getDefaultState());
+        }
+        rule = new BlockListRuleTest(list);
+        final Random seeds = new Random(0L);
+        for (int i = 0; i < SAMPLES; i++) {
+            // About 3 in 4 backgrounds are stone.
+            final Block block = seeds.nextInt(4) != 0 ? Blocks.STONE : blocks[seeds.nextInt(blocks.length)];
+            samples[i] = block.getDefaultState();
+        }
+    }
+
+    @Benchmark
+    public int test() {
+        int count = 0;
+        for (BlockState state : samples) {
+            if (rule.test(state, rand)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int legacy() {
+        int count = 0;
+        for (BlockState state : samples) {
+            if (list.contains(state)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,44 @@
+package com.personthecat.orestonevariants.world;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Random;
+
+import static net.minecraft.util.math.MathHelper.*;
+
+/**
+ *  The endpoints and bounding box of a single cluster, calculated exactly as they are in
+ * {@link VariantFeature}. This allows the geometry to be benchmarked using realistic inputs.
+ */
+class ClusterBounds {
+    final int size;
+    final double aX, bX, aY, bY, aZ, bZ;
+    final int startX, startY, startZ;
+    final int offset, diameter;
+
+    ClusterBounds(Random rand, BlockPos pos, int size) {
+        final float randPI = rand.nextFloat() * (float) Math.PI;
+        final float sizeA = (float) size / 8.0F;
+        final float sinSizeA = sin(randPI) * sizeA;
+        final float cosSizeA = cos(randPI) * sizeA;
+        final int sizeB = ceil((sizeA + 1.0F) / 2.0F);
+
+        this.size = size;
+        this.aX = (float) pos.getX() + sinSizeA;
+        this.bX = (float) pos.getX() - sinSizeA;
+        this.aZ = (float) pos.getZ() + cosSizeA;
+        this.bZ = (float) pos.getZ() - cosSizeA;
+        this.aY = pos.getY() + rand.nextInt(3) - 2;
+        this.bY = pos.getY() + rand.nextInt(3) - 2;
+        this.startX = pos.getX() - ceil(sizeA) - sizeB;
+        this.startY = pos.getY() - 2 - sizeB;
+        this.startZ = pos.getZ() - ceil(sizeA) - sizeB;
+        this.offset = 2 * (ceil(sizeA) + sizeB);
+        this.diameter = 2 * (2 + sizeB);
+    }
+
+    /** Generates the spheres for this cluster using the mod's geometry. */
+    VeinGeometry.Spheres getValues(VeinGeometry.Spheres spheres, Random rand) {
+        return VeinGeometry.getValues(spheres.ensureCapacity(size), rand, size, aX, bX, aY, bY, aZ, bZ);
+    }
+}
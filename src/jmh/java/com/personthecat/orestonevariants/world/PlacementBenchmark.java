@@ -0,0 +1,109 @@
+package com.personthecat.orestonevariants.world;
+
+import com.personthecat.orestonevariants.properties.OreProperties;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Bootstrap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Measures the cost of placing every position in a single cluster through the same code used
+ * by {@link VariantFeature}, including the variant lookup, nested types, and dense variants:
+ *
+ * <ul>
+ *   <li><code>world</code>: every block is read and written through the world, as in the
+ *       regular placement mode.</li>
+ *   <li><code>batched</code>: blocks are read from each proto chunk's sections and written
+ *       one section at a time, as in the batched mode.</li>
+ * </ul>
+ *
+ *  Stone is replaced with ore and every ore is replaced with stone, so that every invocation
+ * does the same amount of work. The world is a 2x2 square of proto chunks and each cluster
+ * crosses the borders between them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlacementBenchmark {
+
+    private static final BlockPos ORIGIN = new BlockPos(16, 64, 16);
+    private static final int HEIGHT = 128;
+
+    @Param({"4", "8", "16", "32", "52"})
+    public int size;
+
+    @Param({"0", "1", "3"})
+    public int nested;
+
+    private final Random rand = new Random(0L);
+    private VariantFeatureConfig config;
+    private VariantLookup lookup;
+    private StubWorld world;
+    private VeinContext ctx;
+
+    @Setup
+    public void setup() {
+        Bootstrap.register();
+        final BlockState stone = Blocks.STONE.getDefaultState();
+        final BlockState[] ores = {
+            Blocks.COAL_ORE.getDefaultState(),
+            Blocks.IRON_ORE.getDefaultState(),
+            Blocks.GOLD_ORE.getDefaultState(),
+            Blocks.DIAMOND_ORE.getDefaultState()
+        };
+        final Map<OreProperties, Map<BlockState, BlockState>> backgrounds = new LinkedHashMap<>();
+        final List<OreProperties> types = new ArrayList<>();
+        for (BlockState ore : ores) {
+            final OreProperties type = OreProperties.builder()
+                .name(String.valueOf(ore.getBlock().getRegistryName()))
+                .canBeDense(true)
+                .build();
+            final Map<BlockState, BlockState> map = new HashMap<>();
+            map.put(stone, ore);
+            for (BlockState other : ores) {
+                map.put(other, stone);
+            }
+            backgrounds.put(type, map);
+            types.add(type);
+        }
+        final List<NestedType> nestedTypes = new ArrayList<>();
+        for (int i = 0; i < nested; i++) {
+            nestedTypes.add(new NestedType(types.get(i + 1), 0.1));
+        }
+        config = new VariantFeatureConfig(types.get(0), size, 0.1, nestedTypes);
+        lookup = VariantLookup.compile(backgrounds);
+        world = new StubWorld(2, HEIGHT, stone);
+
+        // Positions are rasterized once and reused by every invocation.
+        final ClusterBounds bounds = new ClusterBounds(new Random(size), ORIGIN, size);
+        ctx = VeinContext.get().reset(size, nested + 1);
+        VeinGeometry.rasterize(bounds.getValues(ctx.spheres, new Random(size)), size, ctx.flags,
+            bounds.startX, bounds.startY, bounds.startZ, bounds.offset, bounds.diameter, ctx.positions);
+    }
+
+    @Benchmark
+    public int world() {
+        return VariantFeature.INSTANCE.place(world, rand, config, ctx, lookup, false, true);
+    }
+
+    @Benchmark
+    public int batched() {
+        return VariantFeature.INSTANCE.place(world, rand, config, ctx, lookup, true, true);
+    }
+}
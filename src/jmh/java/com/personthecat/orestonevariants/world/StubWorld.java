@@ -0,0 +1,267 @@
+package com.personthecat.orestonevariants.world;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.particles.IParticleData;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.registry.DynamicRegistries;
+import net.minecraft.world.DifficultyInstance;
+import net.minecraft.world.DimensionType;
+import net.minecraft.world.ITickList;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeManager;
+import net.minecraft.world.border.WorldBorder;
+import net.minecraft.world.chunk.AbstractChunkProvider;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.IChunk;
+import net.minecraft.world.chunk.UpgradeData;
+import net.minecraft.world.gen.Heightmap;
+import net.minecraft.world.lighting.WorldLightManager;
+import net.minecraft.world.storage.IWorldInfo;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ *  A minimal world for benchmarks, backed by a square of proto chunks starting at chunk 0, 0.
+ * This mirrors a world generation region, in which blocks are read and written through each
+ * {@link ChunkPrimer}. Only block access and chunk lookups are supported. Any other call fails,
+ * so that benchmarks cannot silently depend on any behavior which is not being measured.
+ */
+@ParametersAreNonnullByDefault
+class StubWorld implements IWorld {
+
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final ChunkPrimer[] chunks;
+    private final int width;
+    private final Random rand = new Random(0L);
+
+    /**
+     * Creates a world spanning the given number of chunks along each horizontal axis.
+     *
+     * @param width The number of chunks on each side.
+     * @param height The number of blocks to fill, starting at y = 0.
+     * @param fill The state to place at every position.
+     */
+    StubWorld(int width, int height, BlockState fill) {
+        this.chunks = new ChunkPrimer[width * width];
+        this.width = width;
+        for (int x = 0; x < width; x++) {
+            for (int z = 0; z < width; z++) {
+                final ChunkPrimer primer = new ChunkPrimer(new ChunkPos(x, z), UpgradeData.EMPTY);
+                for (BlockPos pos : BlockPos.getAllInBoxMutable(x << 4, 0, z << 4, (x << 4) + 15, height - 1, (z << 4) + 15)) {
+                    primer.setBlockState(pos, fill, false);
+                }
+                this.chunks[z * width + x] = primer;
+            }
+        }
+    }
+
+    @Nullable
+    private ChunkPrimer getPrimer(int chunkX, int chunkZ) {
+        if (chunkX < 0 || chunkX >= width || chunkZ < 0 || chunkZ >= width) {
+            return null;
+        }
+        return chunks[chunkZ * width + chunkX];
+    }
+
+    @Nullable
+    @Override
+    public IChunk getChunk(int x, int z, ChunkStatus requiredStatus, boolean nonnull) {
+        final ChunkPrimer primer = getPrimer(x, z);
+        if (primer == null && nonnull) {
+            throw new IllegalStateException("Chunk out of bounds: " + x + ", " + z);
+        }
+        return primer;
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        final ChunkPrimer primer = getPrimer(pos.getX() >> 4, pos.getZ() >> 4);
+        return primer == null ? AIR : primer.getBlockState(pos);
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Nullable
+    @Override
+    public TileEntity getTileEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public boolean setBlockState(BlockPos pos, BlockState state, int flags, int recursionLeft) {
+        final ChunkPrimer primer = getPrimer(pos.getX() >> 4, pos.getZ() >> 4);
+        if (primer == null) {
+            return false;
+        }
+        primer.setBlockState(pos, state, false);
+        return true;
+    }
+
+    @Override
+    public boolean removeBlock(BlockPos pos, boolean isMoving) {
+        return setBlockState(pos, AIR, 3);
+    }
+
+    @Override
+    public boolean destroyBlock(BlockPos pos, boolean dropBlock, @Nullable Entity entity, int recursionLeft) {
+        return setBlockState(pos, AIR, 3, recursionLeft);
+    }
+
+    @Override
+    public boolean hasBlockState(BlockPos pos, Predicate<BlockState> predicate) {
+        return predicate.test(getBlockState(pos));
+    }
+
+    @Override
+    public Random getRandom() {
+        return rand;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public int getSeaLevel() {
+        return 63;
+    }
+
+    @Override
+    public int getSkylightSubtracted() {
+        return 0;
+    }
+
+    // Nothing below is needed by the benchmarks.
+
+    @Override
+    public ITickList<Block> getPendingBlockTicks() {
+        throw unsupported();
+    }
+
+    @Override
+    public ITickList<Fluid> getPendingFluidTicks() {
+        throw unsupported();
+    }
+
+    @Override
+    public IWorldInfo getWorldInfo() {
+        throw unsupported();
+    }
+
+    @Override
+    public DifficultyInstance getDifficultyForLocation(BlockPos pos) {
+        throw unsupported();
+    }
+
+    @Override
+    public AbstractChunkProvider getChunkProvider() {
+        throw unsupported();
+    }
+
+    @Override
+    public void playSound(@Nullable PlayerEntity player, BlockPos pos, SoundEvent sound, SoundCategory category, float volume, float pitch) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addParticle(IParticleData particleData, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed) {
+        throw unsupported();
+    }
+
+    @Override
+    public void playEvent(@Nullable PlayerEntity player, int type, BlockPos pos, int data) {
+        throw unsupported();
+    }
+
+    @Override
+    public DynamicRegistries func_241828_r() {
+        throw unsupported();
+    }
+
+    @Override
+    public float func_230487_a_(Direction direction, boolean shade) {
+        throw unsupported();
+    }
+
+    @Override
+    public WorldLightManager getLightManager() {
+        throw unsupported();
+    }
+
+    @Override
+    public WorldBorder getWorldBorder() {
+        throw unsupported();
+    }
+
+    @Override
+    public int getHeight(Heightmap.Type type, int x, int z) {
+        throw unsupported();
+    }
+
+    @Override
+    public BlockPos getHeight(Heightmap.Type type, BlockPos pos) {
+        throw unsupported();
+    }
+
+    @Override
+    public BiomeManager getBiomeManager() {
+        throw unsupported();
+    }
+
+    @Override
+    public Biome getNoiseBiomeRaw(int x, int y, int z) {
+        throw unsupported();
+    }
+
+    @Override
+    public DimensionType getDimensionType() {
+        throw unsupported();
+    }
+
+    @Override
+    public List<Entity> getEntitiesInAABBexcluding(@Nullable Entity entity, AxisAlignedBB bb, @Nullable Predicate<? super Entity> predicate) {
+        throw unsupported();
+    }
+
+    @Override
+    public <T extends Entity> List<T> getEntitiesWithinAABB(Class<? extends T> type, AxisAlignedBB bb, @Nullable Predicate<? super T> predicate) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends PlayerEntity> getPlayers() {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by stub");
+    }
+
+    @Override
+    public String toString() {
+        return "StubWorld[" + width + "x" + width + "]";
+    }
+}
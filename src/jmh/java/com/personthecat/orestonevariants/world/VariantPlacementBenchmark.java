@@ -0,0 +1,68 @@
+package com.personthecat.orestonevariants.world;
+
+import com.personthecat.orestonevariants.util.Range;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.personthecat.orestonevariants.util.CommonMethods.numBetween;
+
+/**
+ *  Compares the positions generated by {@link VariantPlacement} against the original
+ * <code>IntStream</code> pipeline, which passed each attempt through several intermediate
+ * stages. Run with <code>-prof gc</code> to see the allocation rate of each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VariantPlacementBenchmark {
+
+    private static final BlockPos ORIGIN = new BlockPos(16, 0, 16);
+
+    @Param({"2", "20", "50"})
+    public int count;
+
+    @Param({"0.25", "1.0"})
+    public double chance;
+
+    private final Random rand = new Random(0L);
+    private VariantPlacementConfig config;
+
+    @Setup
+    public void setup() {
+        config = new VariantPlacementConfig(Range.of(count), Range.of(0, 64), chance);
+    }
+
+    @Benchmark
+    public void spliterator(Blackhole bh) {
+        VariantPlacement.INSTANCE.getPositions(rand, config, ORIGIN).forEach(pos -> bh.consume(pos.getX() + pos.getY() + pos.getZ()));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        getLegacyPositions(rand, config, ORIGIN).forEach(pos -> bh.consume(pos.getX() + pos.getY() + pos.getZ()));
+    }
+
+    /** The original implementation of {@link VariantPlacement#getPositions}. */
+    private static Stream<BlockPos> getLegacyPositions(Random rand, VariantPlacementConfig config, BlockPos origin) {
+        return IntStream.range(0, numBetween(rand, config.minCount, config.maxCount))
+            .filter(i -> config.chance == 1.0 || rand.nextFloat() <= config.chance)
+            .mapToObj(i -> new BlockPos(
+                rand.nextInt(16) + origin.getX(),
+                rand.nextInt(config.incrHeight + 1) + config.minHeight,
+                rand.nextInt(16) + origin.getZ()
+            ));
+    }
+}
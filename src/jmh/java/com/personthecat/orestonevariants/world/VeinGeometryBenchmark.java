@@ -0,0 +1,120 @@
+package com.personthecat.orestonevariants.world;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Measures the cost of generating and rasterizing a single cluster, independently of the world.
+ * Sizes cover the full range used by the default presets.
+ *
+ *  Draining is measured on its own against the original pairwise comparison. Both start from
+ * the same undrained spheres, which are copied back before each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VeinGeometryBenchmark {
+
+    private static final BlockPos ORIGIN = new BlockPos(8, 64, 8);
+
+    @Param({"4", "8", "16", "32", "52"})
+    public int size;
+
+    private final Random rand = new Random(0L);
+    private final VeinGeometry.Spheres spheres = new VeinGeometry.Spheres();
+    private final VeinGeometry.Spheres fixed = new VeinGeometry.Spheres();
+    private final VeinGeometry.Spheres drained = new VeinGeometry.Spheres();
+    private double[] radii;
+    private double step;
+    private final BitSet flags = new BitSet();
+    private final LongList positions = new LongArrayList();
+    private ClusterBounds bounds;
+
+    @Setup
+    public void setup() {
+        bounds = new ClusterBounds(new Random(size), ORIGIN, size);
+        bounds.getValues(fixed, new Random(size));
+        spheres.ensureCapacity(size);
+
+        // Generate the same spheres again without draining them.
+        final Random seeds = new Random(size);
+        drained.ensureCapacity(size);
+        radii = new double[size];
+        for (int i = 0; i < size; i++) {
+            final double fraction = (double) i / (double) size;
+            drained.xs[i] = MathHelper.lerp(fraction, bounds.aX, bounds.bX);
+            drained.ys[i] = MathHelper.lerp(fraction, bounds.aY, bounds.bY);
+            drained.zs[i] = MathHelper.lerp(fraction, bounds.aZ, bounds.bZ);
+            final double diameter = seeds.nextDouble() * (double) size / 16.0D;
+            radii[i] = ((MathHelper.sin((float) (Math.PI * fraction)) + 1.0F) * diameter + 1.0D) / 2.0D;
+        }
+        step = Math.sqrt((bounds.bX - bounds.aX) * (bounds.bX - bounds.aX) + (bounds.bZ - bounds.aZ) * (bounds.bZ - bounds.aZ)) / (double) size;
+    }
+
+    @Benchmark
+    public VeinGeometry.Spheres getValues() {
+        return VeinGeometry.getValues(spheres, rand, size, bounds.aX, bounds.bX, bounds.aY, bounds.bY, bounds.aZ, bounds.bZ);
+    }
+
+    @Benchmark
+    public VeinGeometry.Spheres getVanillaValues() {
+        return VeinGeometry.getVanillaValues(spheres, rand, size, bounds.aX, bounds.bX, bounds.aY, bounds.bY, bounds.aZ, bounds.bZ);
+    }
+
+    @Benchmark
+    public LongList rasterize() {
+        flags.clear();
+        positions.clear();
+        return VeinGeometry.rasterize(fixed, size, flags, bounds.startX, bounds.startY, bounds.startZ, bounds.offset, bounds.diameter, positions);
+    }
+
+    @Benchmark
+    public VeinGeometry.Spheres drainOutOfBounds() {
+        System.arraycopy(radii, 0, drained.rs, 0, size);
+        return VeinGeometry.drainOutOfBounds(drained, size, step);
+    }
+
+    @Benchmark
+    public VeinGeometry.Spheres drainPairwise() {
+        System.arraycopy(radii, 0, drained.rs, 0, size);
+        final double[] xs = drained.xs;
+        final double[] ys = drained.ys;
+        final double[] zs = drained.zs;
+        final double[] rs = drained.rs;
+        // The original implementation, which compared every pair of spheres.
+        for (int i = 0; i < size - 1; i++) {
+            if (rs[i] > 0.0D) {
+                for (int j = i + 1; j < size; j++) {
+                    if (rs[j] > 0.0D) {
+                        final double distX = xs[i] - xs[j];
+                        final double distY = ys[i] - ys[j];
+                        final double distZ = zs[i] - zs[j];
+                        final double radius = rs[i] - rs[j];
+                        if (radius * radius > distX * distX + distY * distY + distZ * distZ) {
+                            if (radius > 0.0D) {
+                                rs[j] = -1.0D;
+                            } else {
+                                rs[i] = -1.0D;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return drained;
+    }
+}
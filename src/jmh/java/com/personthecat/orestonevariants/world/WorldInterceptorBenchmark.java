@@ -0,0 +1,114 @@
+package com.personthecat.orestonevariants.world;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraft.world.IBlockReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Measures the cost of priming and resetting a {@link WorldInterceptor}. Worlds are drawn from
+ * a pool of distinct readers, which simulates the number of world generation regions that may
+ * be live at once. The <code>fresh</code> benchmarks create a new world for every call, so that
+ * the cost of inserting into and sweeping the instance map is included.
+ *
+ *  Run with <code>-prof gc</code> to see the allocation rate of each. While a thread keeps
+ * priming the same world, as in <code>pooled</code> with a single world, it reuses the last
+ * interceptor and its tick interceptor, so <code>gc.alloc.rate.norm</code> should be close to
+ * zero bytes per operation. Switching worlds only reads the primitive-keyed instance map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WorldInterceptorBenchmark {
+
+    @Param({"1", "64", "4096"})
+    public int worlds;
+
+    private IBlockReader[] readers;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Bootstrap.register();
+        readers = new IBlockReader[worlds];
+        for (int i = 0; i < worlds; i++) {
+            readers[i] = new Reader();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        WorldInterceptor.clearAll();
+    }
+
+    @Benchmark
+    public WorldInterceptor pooled() {
+        final IBlockReader reader = readers[next++ % worlds];
+        return prime(reader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public WorldInterceptor pooledContended() {
+        final IBlockReader reader = readers[next++ % worlds];
+        return prime(reader);
+    }
+
+    @Benchmark
+    public WorldInterceptor fresh() {
+        return prime(new Reader());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public WorldInterceptor freshContended() {
+        return prime(new Reader());
+    }
+
+    /** Primes the interceptor in the same way as SharedStateBlock and then resets it. */
+    private static WorldInterceptor prime(IBlockReader reader) {
+        final WorldInterceptor world = WorldInterceptor.inWorld(reader)
+            .intercepting(Blocks.STONE, Blocks.DIAMOND_ORE)
+            .onlyAt(BlockPos.ZERO)
+            .getWorld();
+        WorldInterceptor.resetThread();
+        return world;
+    }
+
+    /** A reader which is not a world, so that priming never touches any world state. */
+    private static class Reader implements IBlockReader {
+        @Nullable
+        @Override
+        public TileEntity getTileEntity(BlockPos pos) {
+            return null;
+        }
+
+        @Override
+        public BlockState getBlockState(BlockPos pos) {
+            return Blocks.AIR.getDefaultState();
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos) {
+            return Fluids.EMPTY.getDefaultState();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.personthecat.orestonevariants;
 
+import com.personthecat.orestonevariants.blocks.VariantStats;
 import com.personthecat.orestonevariants.commands.CommandOSV;
 import com.personthecat.orestonevariants.commands.HjsonArgument;
 import com.personthecat.orestonevariants.commands.PathArgument;
@@ -10,6 +11,7 @@ import com.personthecat.orestonevariants.io.ResourceHelper;
 import com.personthecat.orestonevariants.models.ModelConstructor;
 import com.personthecat.orestonevariants.recipes.RecipeHelper;
 import com.personthecat.orestonevariants.tags.TagHelper;
+import com.personthecat.orestonevariants.textures.OverlayReloadListener;
 import com.personthecat.orestonevariants.textures.SpriteHandler;
 import com.personthecat.orestonevariants.world.OreGen;
 import com.personthecat.orestonevariants.world.WorldInterceptor;
@@ -23,6 +25,7 @@ import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.event.server.FMLServerStartingEvent;
 import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
+import personthecat.fresult.Result;
 
 @Mod(Main.MOD_ID)
 public class Main {
@@ -49,6 +52,7 @@ public class Main {
         eventBus.addListener(EventPriority.LOWEST, OreGen::setupOreFeatures);
         eventBus.addListener(EventPriority.HIGHEST, TagHelper::onTagsUpdated);
         eventBus.addListener(this::serverStopping);
+        eventBus.addListener(VariantStats::onServerTick);
     }
 
     @SuppressWarnings("unused")
@@ -62,18 +66,24 @@ public class Main {
         if (Cfg.generateResources.get() || ResourceHelper.resourcesCreated()) {
             ModelConstructor.generateOverlayModel();
             SpriteHandler.generateOverlays();
+            ResourceHelper.flushResources().ifErr(Result::WARN);
         }
+        OverlayReloadListener.register();
         modBus.addListener(EventPriority.LOWEST, ClientRegistryHandler::clientLoadComplete);
     }
 
     private void initServer(final FMLServerStartingEvent event) {
         RecipeHelper.handleRecipes(event.getServer().getRecipeManager());
         CommandOSV.register(event.getServer().getCommandManager());
+        if (Cfg.variantStats.get()) {
+            VariantStats.enable();
+        }
     }
 
     @SuppressWarnings("unused")
     private void serverStopping(final FMLServerStoppingEvent event) {
         WorldInterceptor.clearAll();
+        VariantStats.disable();
         OreGen.onWorldClosed();
     }
 }
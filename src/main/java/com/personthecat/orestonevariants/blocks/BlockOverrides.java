@@ -0,0 +1,81 @@
+package com.personthecat.orestonevariants.blocks;
+
+import cpw.mods.modlauncher.api.INameMappingService.Domain;
+import net.minecraft.block.AbstractBlock;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.fml.common.ObfuscationReflectionHelper;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *   Records which world-dependent methods are actually implemented by a type of block. Vanilla
+ * provides empty implementations of each of these methods, which means that most background
+ * blocks (e.g. stone or andesite) never need to be called at all. Skipping these calls allows
+ * {@link SharedStateBlock} to avoid priming the world interceptor on the random tick path.
+ *
+ *   Each class is analyzed only once, the first time a block of that type is wrapped.
+ */
+class BlockOverrides {
+
+    /** The results of every analysis, by block class. */
+    private static final Map<Class<?>, BlockOverrides> CACHE = new ConcurrentHashMap<>();
+
+    private static final String RANDOM_TICK = remap("func_225542_b_");
+    private static final String TICK = remap("func_225534_a_");
+    private static final String ANIMATE_TICK = remap("func_180655_c");
+    private static final String ON_ENTITY_WALK = remap("func_176199_a");
+
+    /** Whether this block does anything on random tick. The default implementation calls tick. */
+    final boolean randomTick;
+    final boolean tick;
+    final boolean animateTick;
+    final boolean onEntityWalk;
+
+    private BlockOverrides(Class<?> clazz) {
+        this.tick = overrides(clazz, TICK, BlockState.class, ServerWorld.class, BlockPos.class, Random.class);
+        this.randomTick = this.tick
+            || overrides(clazz, RANDOM_TICK, BlockState.class, ServerWorld.class, BlockPos.class, Random.class);
+        this.animateTick = overrides(clazz, ANIMATE_TICK, BlockState.class, World.class, BlockPos.class, Random.class);
+        this.onEntityWalk = overrides(clazz, ON_ENTITY_WALK, World.class, BlockPos.class, Entity.class);
+    }
+
+    /**
+     * Retrieves the analysis for the given block's class, analyzing it if necessary.
+     *
+     * @param block The block being wrapped by an ore variant.
+     * @return Which of its methods must be called.
+     */
+    static BlockOverrides get(Block block) {
+        return CACHE.computeIfAbsent(block.getClass(), BlockOverrides::new);
+    }
+
+    /**
+     * Determines whether any class between <code>clazz</code> and the vanilla base classes
+     * declares the given method. If the method cannot be inspected for any reason, it is
+     * assumed to be overridden.
+     */
+    private static boolean overrides(Class<?> clazz, String name, Class<?>... params) {
+        for (Class<?> c = clazz; c != Block.class && c != AbstractBlock.class && c != null; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, params);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+                // Check the parent class.
+            } catch (LinkageError | SecurityException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String remap(String name) {
+        return ObfuscationReflectionHelper.remapName(Domain.METHOD, name);
+    }
+}
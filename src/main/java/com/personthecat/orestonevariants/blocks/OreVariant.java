@@ -21,9 +21,12 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.loot.LootContext;
 import net.minecraft.loot.LootParameterSets;
 import net.minecraft.loot.LootParameters;
+import net.minecraft.loot.LootTable;
+import net.minecraft.loot.LootTables;
 import net.minecraft.state.BooleanProperty;
 import net.minecraft.state.StateContainer;
 import net.minecraft.util.Direction;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.shapes.VoxelShape;
@@ -34,11 +37,15 @@ import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import net.minecraftforge.common.extensions.IForgeBlock;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Random;
+import java.util.function.Predicate;
 
 import static com.personthecat.orestonevariants.util.CommonMethods.find;
 import static com.personthecat.orestonevariants.util.CommonMethods.runExF;
@@ -62,6 +69,9 @@ public class OreVariant extends SharedStateBlock implements IForgeBlock {
     /** The item representing the dense state of this block. */
     public final Lazy<Item> denseItem;
 
+    /** The item dropped by the foreground block, to be replaced by {@link #normalItem}. */
+    private final Lazy<Item> oreItem;
+
     /** BlockState properties used by all ore variants. */
     public static final BooleanProperty DENSE = BooleanProperty.create("dense");
 
@@ -76,7 +86,7 @@ public class OreVariant extends SharedStateBlock implements IForgeBlock {
         this.fgState = osvProps.ore.get();
         this.normalItem = new Lazy<>(this::initNormalItem);
         this.denseItem = new Lazy<>(this::initDenseItem);
-        setDefaultState(createDefaultState());
+        this.oreItem = new Lazy<>(() -> fgState.getBlock().asItem());
         setRegistryName(CommonMethods.createName(osvProps, bgState.getBlock()));
         mapInfestedVariants(osvProps, this, bgState.getBlock());
     }
@@ -92,8 +102,9 @@ public class OreVariant extends SharedStateBlock implements IForgeBlock {
     }
 
     /** Conditionally generates the default state for this ore. */
+    @Override
     protected BlockState createDefaultState() {
-        return getDefaultState().with(DENSE, false);
+        return super.createDefaultState().with(DENSE, false);
     }
 
     @Override
@@ -121,10 +132,6 @@ public class OreVariant extends SharedStateBlock implements IForgeBlock {
         }
     }
 
-    private ItemStack getStack(BlockState state) {
-        return new ItemStack(state.get(DENSE) ? denseItem.get() : normalItem.get());
-    }
-
     /** Returns a stack containing the foreground ore block represented by this block. */
     public ItemStack getOreStack() {
         return new ItemStack(fgState.getBlock());
@@ -206,74 +213,106 @@ public class OreVariant extends SharedStateBlock implements IForgeBlock {
     @Deprecated
     @SuppressWarnings("deprecation")
     public List<ItemStack> getDrops(BlockState state, LootContext.Builder builder) {
-        final List<ItemStack> items = getBaseDrops(state, builder);
-        handleDense(items, state, builder);
-        return handleSelfDrops(items, state, hasSilkTouch(builder));
+        final long start = VariantStats.start();
+        try {
+            final LootContext ctx = builder
+                .withParameter(LootParameters.BLOCK_STATE, state)
+                .build(LootParameterSets.BLOCK);
+            final int rolls = state.get(DENSE) ? getDenseRolls(RANDOM, Cfg.denseDropMultiplier.get(),
+                Cfg.denseDropMultiplierMin.get(), Cfg.randomDropCount.get()) : 0;
+            final List<ItemStack> items = rollDrops(getBaseTable(ctx), ctx, rolls);
+            return handleSelfDrops(items, state, hasSilkTouch(ctx));
+        } finally {
+            stats.record(VariantStats.Event.GET_DROPS, start);
+        }
     }
 
-    /** Substitutes drops from the lookup loot table with those of a raw table, if applicable. */
-    @Deprecated
-    private List<ItemStack> getBaseDrops(BlockState state, LootContext.Builder builder) {
-        final LootContext ctx = builder
-            .withParameter(LootParameters.BLOCK_STATE, state)
-            .build(LootParameterSets.BLOCK);
-        return properties.drops.get()
-            .map(loot -> loot.generate(ctx))
-            .orElseGet(() -> super.getDrops(state, builder));
+    /** Substitutes this block's lookup loot table with a raw table, if applicable. */
+    @Nullable
+    private LootTable getBaseTable(LootContext ctx) {
+        final Optional<LootTable> drops = properties.drops.get();
+        return drops.isPresent() ? drops.get() : getLookupTable(getLootTable(), ctx);
     }
 
-    /** Generates additional loot, if applicable */
-    private void handleDense(List<ItemStack> items, BlockState state, LootContext.Builder builder) {
-        if (state.get(DENSE)) {
-            int count = Cfg.denseDropMultiplier.get();
-            if (Cfg.randomDropCount.get()) {
-                count = RANDOM.nextInt(count + 1);
-            }
-            if (count < Cfg.denseDropMultiplierMin.get()) {
-                count = Cfg.denseDropMultiplierMin.get();
-            }
-            for (int i = 0; i < count; i++) {
-                items.addAll(getBaseDrops(state, builder));
-            }
+    /**
+     * Locates a block's loot table exactly as the default implementation would.
+     *
+     * @return The table, or else <code>null</code> if the block has no drops.
+     */
+    @Nullable
+    static LootTable getLookupTable(ResourceLocation id, LootContext ctx) {
+        return id == LootTables.EMPTY ? null : ctx.getLootTable(id);
+    }
+
+    /**
+     * Generates the base drops and then each additional dense drop. The same context can be
+     * reused for every roll, as it is only read by loot tables.
+     *
+     * @param table The table to roll from, or <code>null</code> if there are no drops.
+     * @param denseRolls The number of additional rolls, or 0 if the block is not dense.
+     * @return A mutable list containing every item dropped.
+     */
+    static List<ItemStack> rollDrops(@Nullable LootTable table, LootContext ctx, int denseRolls) {
+        if (table == null) {
+            return new ArrayList<>();
+        }
+        final List<ItemStack> items = table.generate(ctx);
+        for (int i = 0; i < denseRolls; i++) {
+            items.addAll(table.generate(ctx));
         }
+        return items;
+    }
+
+    /** Chooses the number of additional rolls for a dense variant. */
+    static int getDenseRolls(Random rand, int multiplier, int min, boolean randomCount) {
+        final int count = randomCount ? rand.nextInt(multiplier + 1) : multiplier;
+        return Math.max(min, count);
     }
 
     /** Replaces the original background ore drop with this block, if applicable. */
     private List<ItemStack> handleSelfDrops(List<ItemStack> items, BlockState state, boolean silkTouch) {
         if (Cfg.variantsDrop.get() || (silkTouch && Cfg.variantsSilkTouch.get())) {
-            items.replaceAll(item -> {
-                if (item.isItemEqual(getOreStack())) {
-                    return getStack(state);
-                } else {
-                    return item;
+            final Item ore = oreItem.get();
+            final Item variant = state.get(DENSE) ? denseItem.get() : normalItem.get();
+            for (int i = 0; i < items.size(); i++) {
+                final ItemStack item = items.get(i);
+                if (!item.isEmpty() && item.getItem() == ore) {
+                    items.set(i, new ItemStack(variant));
                 }
-            });
+            }
         }
         // Correcting the duplicate dense drops. Better algorithm?
-        return state.get(DENSE) ? removeDuplicateDense(items) : items;
+        if (state.get(DENSE)) {
+            removeDuplicateDense(items);
+        }
+        return items;
+    }
+
+    /** Removes any duplicate dense variants from the input stack in place. */
+    private static void removeDuplicateDense(List<ItemStack> items) {
+        removeDuplicates(items, item -> item instanceof DenseVariantItem);
     }
 
-    /** Removes any duplicate dense variants from the input stack in a new list. */
-    private List<ItemStack> removeDuplicateDense(List<ItemStack> items) {
-        final List<ItemStack> newList = new ArrayList<>();
-        boolean denseFound = false;
-        for (ItemStack item : items) {
-            final boolean dense = item.getItem() instanceof DenseVariantItem;
-            if (!(dense && denseFound)) {
-                newList.add(item);
+    /** Removes every matching item after the first from the input stack in place. */
+    static void removeDuplicates(List<ItemStack> items, Predicate<Item> filter) {
+        boolean found = false;
+        final Iterator<ItemStack> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            final boolean matches = filter.test(iterator.next().getItem());
+            if (matches && found) {
+                iterator.remove();
             }
-            denseFound = denseFound || dense;
+            found = found || matches;
         }
-        return newList;
     }
 
     /** Determines whether silk touch is used in the current context. */
-    private boolean hasSilkTouch(LootContext.Builder builder) {
-        final ItemStack tool = builder.get(LootParameters.TOOL);
+    private static boolean hasSilkTouch(LootContext ctx) {
+        final ItemStack tool = ctx.get(LootParameters.TOOL);
         if (tool == null) {
             return false;
         }
-        return EnchantmentHelper.getEnchantments(tool).containsKey(Enchantments.SILK_TOUCH);
+        return EnchantmentHelper.getEnchantmentLevel(Enchantments.SILK_TOUCH, tool) > 0;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package com.personthecat.orestonevariants.blocks;
 
 import com.personthecat.orestonevariants.world.WorldInterceptor;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import lombok.extern.log4j.Log4j2;
 import mcp.MethodsReturnNonnullByDefault;
 import net.minecraft.block.*;
@@ -30,9 +31,10 @@ import net.minecraftforge.common.IPlantable;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.Function;
 
 /**
  * This class is designed to circumvent the requirement that block state properties be defined at
@@ -59,12 +61,44 @@ public class SharedStateBlock extends OreBlock {
     /** The foreground block being emulated by this one. */
     private final Block fg;
 
+    /** Maps each state of this block to the background state it imitates. */
+    private final Map<BlockState, BlockState> toBg;
+
+    /** Maps each state of this block to the foreground state it imitates. */
+    private final Map<BlockState, BlockState> toFg;
+
+    /** Maps each background state to its equivalent for this block. */
+    private final Map<BlockState, BlockState> fromBg;
+
+    /** Converts states of either wrapped block back into this block, for each state of this block. */
+    private final Map<BlockState, Function<BlockState, BlockState>> fromMappers;
+
+    /** Reusable mappers from this block to the background and foreground, respectively. */
+    private final Function<BlockState, BlockState> bgMapper = this::bgImitateThis;
+    private final Function<BlockState, BlockState> fgMapper = this::fgImitateThis;
+
+    /** Measures calls to this block, when enabled. */
+    protected final VariantStats stats = new VariantStats(this);
+
+    /** Which world-dependent methods of the background block need to be called. */
+    private final BlockOverrides bgOverrides;
+
+    /** Which world-dependent methods of the foreground block need to be called. */
+    private final BlockOverrides fgOverrides;
+
     /** Creates a new block which copies states from <em>at least one</em> other block. */
     SharedStateBlock(Properties properties, Block bg, Block fg) {
         super(preInit(properties, bg, fg));
         this.bg = bg;
         this.fg = fg;
-        setDefaultState(imitate(getDefaultState(), bg.getDefaultState(), fg.getDefaultState()));
+        this.bgOverrides = BlockOverrides.get(bg);
+        this.fgOverrides = BlockOverrides.get(fg);
+        setDefaultState(createDefaultState());
+        // The background table depends on the default state, which is final at this point.
+        this.toBg = createImitationTable(bg);
+        this.toFg = createImitationTable(fg);
+        this.fromBg = createBackgroundTable(bg);
+        this.fromMappers = createMappers();
         // We are done with these data and can clear them from the cache.
         cache.remove();
     }
@@ -78,6 +112,14 @@ public class SharedStateBlock extends OreBlock {
         return properties;
     }
 
+    /**
+     * Generates the default state of this block. Subclasses may add to this state, but note
+     * that this is called before any of their fields are initialized.
+     */
+    protected BlockState createDefaultState() {
+        return imitate(getDefaultState(), bg.getDefaultState(), fg.getDefaultState());
+    }
+
     /**
      * This function copies block state properties from an array of blocks in the cache. It is
      * safe to call this, as duplicate properties happen to be ignored by the underlying map
@@ -95,6 +137,52 @@ public class SharedStateBlock extends OreBlock {
         }
     }
 
+    /**
+     * Generates a table mapping every state of this block to the state of another block which
+     * copies it. Block states are finite and immutable, so every imitation can be computed
+     * ahead of time.
+     *
+     * @param other The block whose states will imitate this one.
+     * @return A map of ore variant -> <code>other</code>
+     */
+    private Map<BlockState, BlockState> createImitationTable(Block other) {
+        final Map<BlockState, BlockState> table = new Reference2ObjectOpenHashMap<>();
+        for (BlockState state : this.getStateContainer().getValidStates()) {
+            table.put(state, imitate(other.getDefaultState(), state));
+        }
+        return table;
+    }
+
+    /**
+     * Generates a table mapping every state of the background block to its equivalent for this
+     * block, starting from the default state.
+     *
+     * @param bg The background block being imitated.
+     * @return A map of background -> ore variant
+     */
+    private Map<BlockState, BlockState> createBackgroundTable(Block bg) {
+        final Map<BlockState, BlockState> table = new Reference2ObjectOpenHashMap<>();
+        for (BlockState bgState : bg.getStateContainer().getValidStates()) {
+            table.put(bgState, imitate(getDefaultState(), bgState));
+        }
+        return Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Generates a mapper for every state of this block which copies the properties of either
+     * wrapped block onto that state. These are passed to the {@link WorldInterceptor} so that
+     * priming it does not allocate a new function every time.
+     *
+     * @return A map of ore variant -> mapper from the wrapped block
+     */
+    private Map<BlockState, Function<BlockState, BlockState>> createMappers() {
+        final Map<BlockState, Function<BlockState, BlockState>> mappers = new Reference2ObjectOpenHashMap<>();
+        for (BlockState state : this.getStateContainer().getValidStates()) {
+            mappers.put(state, s -> imitate(state, s));
+        }
+        return mappers;
+    }
+
     /**
      * Generates a map of all of the background blockstates to their equivalents for this block.
      * This will be used in world generation to make sure the correct variants are spawned.
@@ -102,12 +190,7 @@ public class SharedStateBlock extends OreBlock {
      * @return A map of background -> ore variant
      */
     public Map<BlockState, BlockState> getBackgroundMap() {
-        final Map<BlockState, BlockState> map = new HashMap<>();
-
-        for (BlockState bgState : this.bg.getStateContainer().getValidStates()) {
-            map.put(bgState, imitate(getDefaultState(), bgState));
-        }
-        return map;
+        return fromBg;
     }
 
     /**
@@ -118,7 +201,8 @@ public class SharedStateBlock extends OreBlock {
      * @return A state of the wrapped block copying <code>this</code>.
      */
     private BlockState bgImitateThis(BlockState myself) {
-        return imitate(bg.getDefaultState(), myself);
+        final BlockState imitation = toBg.get(myself);
+        return imitation != null ? imitation : imitate(bg.getDefaultState(), myself);
     }
 
     /**
@@ -128,7 +212,8 @@ public class SharedStateBlock extends OreBlock {
      * @return A state of the wrapped block copying <code>this</code>.
      */
     private BlockState fgImitateThis(BlockState myself) {
-        return imitate(fg.getDefaultState(), myself);
+        final BlockState imitation = toFg.get(myself);
+        return imitation != null ? imitation : imitate(fg.getDefaultState(), myself);
     }
 
     /**
@@ -195,10 +280,12 @@ public class SharedStateBlock extends OreBlock {
      * @return A mocked world object wrapping this world.
      */
     private WorldInterceptor.Data primeInterceptor(Block wrapped, BlockState actual, IBlockReader world) {
+        stats.count(VariantStats.Event.PRIME_INTERCEPTOR);
+        final Function<BlockState, BlockState> mapper = fromMappers.get(actual);
         return WorldInterceptor.inWorld(world)
             .intercepting(wrapped, this)
-            .mappingTo(s -> imitate(wrapped.getDefaultState(), s))
-            .mappingFrom(s -> imitate(actual, s));
+            .mappingTo(wrapped == bg ? bgMapper : fgMapper)
+            .mappingFrom(mapper != null ? mapper : s -> imitate(actual, s));
     }
 
     /**
@@ -393,13 +480,17 @@ public class SharedStateBlock extends OreBlock {
 
     @Override
     public void onEntityWalk(World world, BlockPos pos, Entity entity) {
+        if (!bgOverrides.onEntityWalk && !fgOverrides.onEntityWalk) {
+            return;
+        }
         final BlockState actualState = world.getBlockState(pos);
-        WorldInterceptor interceptor = interceptPosition(bg, actualState, world, pos);
         try {
-            bg.onEntityWalk(interceptor, pos, entity);
-
-            interceptor = interceptAnywhere(fg, actualState, world);
-            fg.onEntityWalk(interceptor, pos, entity);
+            if (bgOverrides.onEntityWalk) {
+                bg.onEntityWalk(interceptPosition(bg, actualState, world, pos), pos, entity);
+            }
+            if (fgOverrides.onEntityWalk) {
+                fg.onEntityWalk(interceptAnywhere(fg, actualState, world), pos, entity);
+            }
         } finally {
             WorldInterceptor.resetThread();
         }
@@ -410,18 +501,24 @@ public class SharedStateBlock extends OreBlock {
     @SuppressWarnings("deprecation")
     public BlockState updatePostPlacement(BlockState state, Direction dir, BlockState facingState, IWorld world,
               BlockPos pos, BlockPos facingPos) {
+        final long start = VariantStats.start();
         WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
         try {
+            final long bgStart = VariantStats.start();
             final BlockState bgState =
                 bg.updatePostPlacement(bgImitateThis(state), dir, facingState, interceptor, pos, facingPos);
+            stats.record(VariantStats.Event.UPDATE_POST_PLACEMENT, VariantStats.Delegate.BACKGROUND, bgStart);
 
             interceptor = interceptAnywhere(fg, state, world);
+            final long fgStart = VariantStats.start();
             final BlockState fgState =
                 fg.updatePostPlacement(fgImitateThis(state), dir, facingState, interceptor, pos, facingPos);
+            stats.record(VariantStats.Event.UPDATE_POST_PLACEMENT, VariantStats.Delegate.FOREGROUND, fgStart);
 
             return imitate(state, bgState, fgState);
         } finally {
             WorldInterceptor.resetThread();
+            stats.record(VariantStats.Event.UPDATE_POST_PLACEMENT, start);
         }
     }
 
@@ -430,34 +527,53 @@ public class SharedStateBlock extends OreBlock {
     @SuppressWarnings("deprecation")
     public ActionResultType onBlockActivated(BlockState state, World world, BlockPos pos, PlayerEntity player,
              Hand hand, BlockRayTraceResult hit) {
+        final long start = VariantStats.start();
         WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
         try {
+            final long bgStart = VariantStats.start();
             final ActionResultType bgResult =
                 bg.onBlockActivated(bgImitateThis(state), interceptor, pos, player, hand, hit);
+            stats.record(VariantStats.Event.ON_BLOCK_ACTIVATED, VariantStats.Delegate.BACKGROUND, bgStart);
 
             interceptor = interceptAnywhere(fg, state, world);
+            final long fgStart = VariantStats.start();
             final ActionResultType fgResult =
                 fg.onBlockActivated(fgImitateThis(state), interceptor, pos, player, hand, hit);
+            stats.record(VariantStats.Event.ON_BLOCK_ACTIVATED, VariantStats.Delegate.FOREGROUND, fgStart);
 
             return bgResult == ActionResultType.FAIL ? bgResult : fgResult;
         } finally {
             WorldInterceptor.resetThread();
+            stats.record(VariantStats.Event.ON_BLOCK_ACTIVATED, start);
         }
     }
 
     @Deprecated
     @SuppressWarnings("deprecation")
     public void randomTick(BlockState state, ServerWorld world, BlockPos pos, Random rand) {
-        WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
+        if (!bgOverrides.randomTick && !fgOverrides.randomTick) {
+            stats.count(VariantStats.Event.RANDOM_TICK);
+            return;
+        }
+        final long start = VariantStats.start();
         try {
-            bg.randomTick(bgImitateThis(state), interceptor, pos, rand);
-
-            interceptor = interceptAnywhere(fg, state, world);
-            fg.randomTick(fgImitateThis(state), interceptor, pos, rand);
+            if (bgOverrides.randomTick) {
+                final WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
+                final long bgStart = VariantStats.start();
+                bg.randomTick(bgImitateThis(state), interceptor, pos, rand);
+                stats.record(VariantStats.Event.RANDOM_TICK, VariantStats.Delegate.BACKGROUND, bgStart);
+            }
+            if (fgOverrides.randomTick) {
+                final WorldInterceptor interceptor = interceptAnywhere(fg, state, world);
+                final long fgStart = VariantStats.start();
+                fg.randomTick(fgImitateThis(state), interceptor, pos, rand);
+                stats.record(VariantStats.Event.RANDOM_TICK, VariantStats.Delegate.FOREGROUND, fgStart);
+            }
         } catch (NullPointerException e) {
             log.error("Interceptor returned null for {} on random tick. Skipping.", this);
         } finally {
             WorldInterceptor.resetThread();
+            stats.record(VariantStats.Event.RANDOM_TICK, start);
         }
     }
 
@@ -465,26 +581,43 @@ public class SharedStateBlock extends OreBlock {
     @Deprecated
     @SuppressWarnings("deprecation")
     public void tick(BlockState state, ServerWorld world, BlockPos pos, Random rand) {
-        WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
+        if (!bgOverrides.tick && !fgOverrides.tick) {
+            stats.count(VariantStats.Event.TICK);
+            return;
+        }
+        final long start = VariantStats.start();
         try {
-            bg.tick(bgImitateThis(state), interceptor, pos, rand);
-
-            interceptor = interceptAnywhere(fg, state, world);
-            fg.tick(fgImitateThis(state), interceptor, pos, rand);
+            if (bgOverrides.tick) {
+                final WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
+                final long bgStart = VariantStats.start();
+                bg.tick(bgImitateThis(state), interceptor, pos, rand);
+                stats.record(VariantStats.Event.TICK, VariantStats.Delegate.BACKGROUND, bgStart);
+            }
+            if (fgOverrides.tick) {
+                final WorldInterceptor interceptor = interceptAnywhere(fg, state, world);
+                final long fgStart = VariantStats.start();
+                fg.tick(fgImitateThis(state), interceptor, pos, rand);
+                stats.record(VariantStats.Event.TICK, VariantStats.Delegate.FOREGROUND, fgStart);
+            }
         } finally {
             WorldInterceptor.resetThread();
+            stats.record(VariantStats.Event.TICK, start);
         }
     }
 
     @Override
     @OnlyIn(Dist.CLIENT)
     public void animateTick(BlockState state, World world, BlockPos pos, Random rand) {
-        WorldInterceptor interceptor = interceptPosition(bg, state, world, pos);
+        if (!bgOverrides.animateTick && !fgOverrides.animateTick) {
+            return;
+        }
         try {
-            bg.animateTick(bgImitateThis(state), interceptor, pos, rand);
-
-            interceptor = interceptAnywhere(fg, state, world);
-            fg.animateTick(fgImitateThis(state), interceptor, pos, rand);
+            if (bgOverrides.animateTick) {
+                bg.animateTick(bgImitateThis(state), interceptPosition(bg, state, world, pos), pos, rand);
+            }
+            if (fgOverrides.animateTick) {
+                fg.animateTick(fgImitateThis(state), interceptAnywhere(fg, state, world), pos, rand);
+            }
         } finally {
             WorldInterceptor.resetThread();
         }
@@ -0,0 +1,237 @@
+package com.personthecat.orestonevariants.blocks;
+
+import com.personthecat.orestonevariants.config.Cfg;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.block.Block;
+import net.minecraftforge.event.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.personthecat.orestonevariants.util.CommonMethods.f;
+
+/**
+ *  Counts how often each ore variant delegates to its background and foreground blocks and how
+ * long those calls take. The time spent inside of each delegate is recorded separately from the
+ * total, so that an expensive background can be told apart from an expensive foreground. This
+ * is intended for diagnosing lag caused by variants wrapping blocks
+ * with expensive tick behaviors, such as grass-like spreaders.
+ *
+ *  Counters are striped per thread, so they are safe to update from any number of threads. When
+ * disabled, the only cost to each call is a single volatile read.
+ */
+@Log4j2
+public class VariantStats {
+
+    /** Returned by {@link #start} when stats are disabled. */
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    /** The number of server ticks per second, used for the log interval. */
+    private static final int TICKS_PER_SECOND = 20;
+
+    /** Every set of stats which has been created, i.e. one per variant. */
+    private static final Queue<VariantStats> ALL_STATS = new ConcurrentLinkedQueue<>();
+
+    /** Whether calls should currently be measured. */
+    private static volatile boolean enabled = false;
+
+    /** The number of server ticks since stats were last written to the log. */
+    private static int ticks = 0;
+
+    private final Block block;
+    private final LongAdder[] calls = new LongAdder[Event.values().length];
+    private final LongAdder[] nanos = new LongAdder[Event.values().length];
+    private final LongAdder[][] delegateNanos = new LongAdder[Delegate.values().length][Event.values().length];
+
+    VariantStats(Block block) {
+        this.block = block;
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+            for (LongAdder[] delegate : delegateNanos) {
+                delegate[i] = new LongAdder();
+            }
+        }
+        ALL_STATS.add(this);
+    }
+
+    /** Clears any previous measurements and begins recording. */
+    public static void enable() {
+        reset();
+        enabled = true;
+    }
+
+    /** Stops recording. Measurements are kept until the next call to {@link #reset}. */
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Clears the measurements of every variant. */
+    public static void reset() {
+        for (VariantStats stats : ALL_STATS) {
+            for (int i = 0; i < stats.calls.length; i++) {
+                stats.calls[i].reset();
+                stats.nanos[i].reset();
+                for (LongAdder[] delegate : stats.delegateNanos) {
+                    delegate[i].reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Begins measuring a call, if stats are enabled.
+     *
+     * @return The current time, to be passed into {@link #record}.
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Records a single call which began at the given time.
+     *
+     * @param event The type of call being recorded.
+     * @param start The value returned by {@link #start}.
+     */
+    void record(Event event, long start) {
+        if (start != DISABLED) {
+            calls[event.ordinal()].increment();
+            nanos[event.ordinal()].add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the time spent inside of a single delegate during a call. The call itself must
+     * still be recorded separately.
+     *
+     * @param event The type of call being delegated.
+     * @param delegate The block being delegated to.
+     * @param start The value returned by {@link #start}, immediately before delegating.
+     */
+    void record(Event event, Delegate delegate, long start) {
+        if (start != DISABLED) {
+            delegateNanos[delegate.ordinal()][event.ordinal()].add(System.nanoTime() - start);
+        }
+    }
+
+    /** Records a single call which is not being timed. */
+    void count(Event event) {
+        if (enabled) {
+            calls[event.ordinal()].increment();
+        }
+    }
+
+    /** Returns an immutable copy of every variant's measurements, sorted by time spent, descending. */
+    public static List<Snapshot> snapshot() {
+        final List<Snapshot> snapshots = new ArrayList<>();
+        for (VariantStats stats : ALL_STATS) {
+            final long[] calls = new long[stats.calls.length];
+            final long[] nanos = new long[stats.nanos.length];
+            final long[][] delegateNanos = new long[stats.delegateNanos.length][calls.length];
+            long totalCalls = 0;
+            long totalNanos = 0;
+            for (int i = 0; i < calls.length; i++) {
+                totalCalls += calls[i] = stats.calls[i].sum();
+                totalNanos += nanos[i] = stats.nanos[i].sum();
+                for (int d = 0; d < delegateNanos.length; d++) {
+                    delegateNanos[d][i] = stats.delegateNanos[d][i].sum();
+                }
+            }
+            if (totalCalls > 0) {
+                final String name = String.valueOf(stats.block.getRegistryName());
+                snapshots.add(new Snapshot(name, calls, nanos, delegateNanos, totalNanos));
+            }
+        }
+        snapshots.sort(Comparator.comparingLong((Snapshot s) -> s.totalNanos).reversed());
+        return snapshots;
+    }
+
+    /** Periodically writes the current measurements to the log, if configured. */
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !enabled) {
+            return;
+        }
+        final int interval = Cfg.variantStatsInterval.get();
+        if (interval > 0 && ++ticks >= interval * TICKS_PER_SECOND) {
+            ticks = 0;
+            final List<Snapshot> snapshots = snapshot();
+            log.info("Ore variant stats for {} variants:", snapshots.size());
+            snapshots.forEach(s -> log.info(" - {}", s));
+        }
+    }
+
+    /** Each type of call being measured. */
+    public enum Event {
+        RANDOM_TICK,
+        TICK,
+        UPDATE_POST_PLACEMENT,
+        ON_BLOCK_ACTIVATED,
+        GET_DROPS,
+        PRIME_INTERCEPTOR;
+
+        /** Formats this event for display, e.g. <code>randomTick</code>. */
+        public String key() {
+            final String[] words = name().toLowerCase().split("_");
+            final StringBuilder sb = new StringBuilder(words[0]);
+            for (int i = 1; i < words.length; i++) {
+                sb.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+            }
+            return sb.toString();
+        }
+    }
+
+    /** The blocks which a variant delegates to. */
+    public enum Delegate {
+        BACKGROUND("bg"),
+        FOREGROUND("fg");
+
+        /** The abbreviation used for display. */
+        public final String key;
+
+        Delegate(String key) {
+            this.key = key;
+        }
+    }
+
+    /** The measurements for a single variant at the time of {@link #snapshot}. */
+    @AllArgsConstructor
+    public static class Snapshot {
+        public final String name;
+        public final long[] calls;
+        public final long[] nanos;
+        public final long[][] delegateNanos;
+        public final long totalNanos;
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(f("{}: {} ms", name, String.format("%.2f", totalNanos / 1E6)));
+            for (Event event : Event.values()) {
+                final int i = event.ordinal();
+                if (calls[i] > 0) {
+                    sb.append(f(", {} x{}", event.key(), calls[i]));
+                    if (nanos[i] > 0) {
+                        sb.append(f(" ({} ms", String.format("%.2f", nanos[i] / 1E6)));
+                        for (Delegate delegate : Delegate.values()) {
+                            final long delegated = delegateNanos[delegate.ordinal()][i];
+                            if (delegated > 0) {
+                                sb.append(f(", {} {} ms", delegate.key, String.format("%.2f", delegated / 1E6)));
+                            }
+                        }
+                        sb.append(")");
+                    }
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.mojang.brigadier.context.CommandContext;
 import com.personthecat.orestonevariants.blocks.BlockEntry;
 import com.personthecat.orestonevariants.blocks.BlockGroups;
 import com.personthecat.orestonevariants.blocks.OreVariant;
+import com.personthecat.orestonevariants.blocks.VariantStats;
 import com.personthecat.orestonevariants.config.Cfg;
 import com.personthecat.orestonevariants.init.LazyRegistries;
 import com.personthecat.orestonevariants.io.ResourceHelper;
@@ -18,6 +19,8 @@ import com.personthecat.orestonevariants.properties.PropertyGroups;
 import com.personthecat.orestonevariants.textures.SpriteHandler;
 import com.personthecat.orestonevariants.util.Group;
 import com.personthecat.orestonevariants.util.HjsonLinter;
+import com.personthecat.orestonevariants.world.ChunkPregenerator;
+import com.personthecat.orestonevariants.world.VariantFeatureConfig;
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.Minecraft;
@@ -26,6 +29,8 @@ import net.minecraft.command.Commands;
 import net.minecraft.command.arguments.BlockStateInput;
 import net.minecraft.command.arguments.BlockStateParser;
 import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.text.*;
 import net.minecraft.util.text.event.ClickEvent;
 import net.minecraft.util.text.event.HoverEvent;
@@ -141,6 +146,16 @@ public class CommandOSV {
             "delete <type> [<group>]",
             "Deletes the given registry. This will reset it to",
             "its default state after restart."
+        }, {
+            "pregen <radius|stop> [chunks]",
+            "Generates the chunks around you and reports the",
+            "time spent spawning ore variants. [chunks] limits",
+            "how many are requested at once, not the number of",
+            "threads used by the game."
+        }, {
+            "stats [on|off|reset]",
+            "Displays how often ore variants call their",
+            "background blocks and the time spent doing so."
         }
     };
 
@@ -156,6 +171,15 @@ public class CommandOSV {
     /** The maximum number of values in a list argument. */
     private static final int LIST_DEPTH = 32;
 
+    /** The maximum radius in chunks which can be pregenerated at once. */
+    private static final int MAX_PREGEN_RADIUS = 256;
+
+    /** The maximum number of chunks which can be requested at once while pregenerating. */
+    private static final int MAX_PREGEN_WINDOW = 1024;
+
+    /** The number of variants to display in the stats command. */
+    private static final int NUM_STATS = 10;
+
     /** How many backups should exist before warning the user. */
     private static final int BACKUP_COUNT_WARNING = 10;
 
@@ -197,7 +221,9 @@ public class CommandOSV {
             .then(createGroup())
             .then(createList())
             .then(createClear())
-            .then(createDelete());
+            .then(createDelete())
+            .then(createPregen())
+            .then(createStats());
     }
 
     /** Generates the help sub-command. */
@@ -352,6 +378,29 @@ public class CommandOSV {
                     .executes(wrap(ctx -> delete(ctx, RegistryOperation.PROPERTIES)))));
     }
 
+    /** Generates the stats sub-command. */
+    private static LiteralArgumentBuilder<CommandSource> createStats() {
+        return literal("stats")
+            .executes(wrap(CommandOSV::stats))
+            .then(literal("on")
+                .executes(wrap(CommandOSV::enableStats)))
+            .then(literal("off")
+                .executes(wrap(CommandOSV::disableStats)))
+            .then(literal("reset")
+                .executes(wrap(CommandOSV::resetStats)));
+    }
+
+    /** Generates the pregen sub-command. */
+    private static LiteralArgumentBuilder<CommandSource> createPregen() {
+        return literal("pregen")
+            .then(literal("stop")
+                .executes(wrap(CommandOSV::stopPregen)))
+            .then(arg("radius", 1, MAX_PREGEN_RADIUS)
+                .executes(wrap(CommandOSV::pregen))
+            .then(arg("chunks", 1, MAX_PREGEN_WINDOW)
+                .executes(wrap(CommandOSV::pregen))));
+    }
+
     /** Accepts any block, excluding all and default. */
     private static ArgumentBuilder<CommandSource, ?> blkInBg(String name) {
         return inBg(arg(name, VALID_PROPERTIES));
@@ -434,6 +483,8 @@ public class CommandOSV {
             sendError(ctx, f("> {} backups detected. Consider cleaning these out.", BACKUP_COUNT_WARNING));
         }
         SafeFileIO.mkdirs(assets).expect("Creating resource directory");
+        // Anything still in memory must be written again.
+        ResourceHelper.clearGenerated();
 
         Cfg.onConfigUpdated();
         SpriteHandler.generateOverlays();
@@ -443,6 +494,7 @@ public class CommandOSV {
         // cause inconsistencies with Forge's registries.
         LazyRegistries.BLOCKS.getUpdated().values()
             .forEach(ModelConstructor::generateOreModels);
+        ResourceHelper.flushResources().expect("Error writing generated resources");
 
         reloadMcResources();
         sendMessage(ctx, "New resources generated successfully.");
@@ -469,7 +521,7 @@ public class CommandOSV {
         }
         final double density = ctx.getArgument("density", Double.class);
         int size = (int) (((max - min) + 25) * density);
-        size = Math.min(52, size); // >52 -> cascading gen lag.
+        size = Math.min(VariantFeatureConfig.MAX_STABLE_SIZE, size);
         // Lower density -> greater size -> lower count (invert)
         // 15 count per 5 blocks high
         // Minimum of 15
@@ -484,6 +536,62 @@ public class CommandOSV {
         execute(ctx, f("/osv update stone/{} gen[0] {}", preset, value));
     }
 
+    /** Executes the pregen command. */
+    private static void pregen(CommandContext<CommandSource> ctx) {
+        final int radius = ctx.getArgument("radius", Integer.class);
+        final int window = tryGetArgument(ctx, "chunks", Integer.class)
+            .orElse(ChunkPregenerator.DEFAULT_WINDOW);
+        final ServerWorld world = ctx.getSource().getWorld();
+        final ChunkPos center = new ChunkPos(new BlockPos(ctx.getSource().getPos()));
+        if (!ChunkPregenerator.start(world, center, radius, window, msg -> sendMessage(ctx, msg))) {
+            throw runEx("Pregen is already running. Use /osv pregen stop to cancel it.");
+        }
+        final int side = radius * 2 + 1;
+        sendMessage(ctx, f("Pregenerating {} chunks, {} at a time.", side * side, window));
+    }
+
+    /** Executes the pregen stop command. */
+    private static void stopPregen(CommandContext<CommandSource> ctx) {
+        if (!ChunkPregenerator.stop()) {
+            throw runEx("Pregen is not running.");
+        }
+        sendMessage(ctx, "Stopping pregen. Chunks in progress will finish first.");
+    }
+
+    /** Executes the stats command. */
+    private static void stats(CommandContext<CommandSource> ctx) {
+        if (!VariantStats.isEnabled()) {
+            throw runEx("Stats are not enabled. Use /osv stats on to begin recording.");
+        }
+        final List<VariantStats.Snapshot> snapshots = VariantStats.snapshot();
+        if (snapshots.isEmpty()) {
+            sendMessage(ctx, "No ore variants have been called yet.");
+            return;
+        }
+        sendMessage(ctx, f("Showing {} / {} variants by time spent:", Math.min(NUM_STATS, snapshots.size()), snapshots.size()));
+        for (int i = 0; i < snapshots.size() && i < NUM_STATS; i++) {
+            sendMessage(ctx, " - " + snapshots.get(i));
+        }
+    }
+
+    /** Executes the stats on command. */
+    private static void enableStats(CommandContext<CommandSource> ctx) {
+        VariantStats.enable();
+        sendMessage(ctx, "Recording ore variant stats.");
+    }
+
+    /** Executes the stats off command. */
+    private static void disableStats(CommandContext<CommandSource> ctx) {
+        VariantStats.disable();
+        sendMessage(ctx, "Stopped recording ore variant stats.");
+    }
+
+    /** Executes the stats reset command. */
+    private static void resetStats(CommandContext<CommandSource> ctx) {
+        VariantStats.reset();
+        sendMessage(ctx, "Ore variant stats cleared.");
+    }
+
     /** Executes the update command. */
     private static void update(CommandContext<CommandSource> ctx) {
         final HjsonArgument.Result preset = ctx.getArgument("file", HjsonArgument.Result.class);
@@ -4,6 +4,7 @@ import com.personthecat.orestonevariants.Main;
 import com.personthecat.orestonevariants.blocks.BlockEntry;
 import com.personthecat.orestonevariants.blocks.BlockGroups;
 import com.personthecat.orestonevariants.init.LazyRegistries;
+import com.personthecat.orestonevariants.io.ResourceMode;
 import com.personthecat.orestonevariants.properties.OreProperties;
 import com.personthecat.orestonevariants.properties.PropertyGroups;
 import com.personthecat.orestonevariants.util.CommonMethods;
@@ -185,9 +186,27 @@ public class Cfg {
     public static final BooleanValue generateResources = common
         .comment("Whether to regenerate resources if config/osv/resources already",
                  "exists. You may consider disabling this feature if you already",
-                 "have resources and want to speed up your game load time.")
+                 "have resources and want to speed up your game load time. Overlay",
+                 "textures are only regenerated when their source textures have",
+                 "changed, which is checked again whenever resource packs change.")
         .define("generateResources", true);
 
+    public static final EnumValue<ResourceMode> resourceMode = common
+        .comment("How generated resources are stored. FOLDER writes every resource to",
+                 "config/osv/resources and reads them back from the disk. MEMORY serves",
+                 "resources generated this session from memory and only writes files",
+                 "whose contents have changed. ARCHIVE stores every resource in a single",
+                 "file, config/osv/resources.pack, which is only rewritten when any",
+                 "resources have changed.")
+        .defineEnum("resourceMode", ResourceMode.FOLDER);
+
+    public static final IntValue pngCompression = client
+        .comment("The compression level used when writing generated textures, from",
+                 "0 (fastest, largest files) to 9 (slowest, smallest files). Use -1",
+                 "for the default level. This has no effect on Java 8, which is the",
+                 "usual runtime for 1.16.5, as its PNG writer cannot be configured.")
+        .defineInRange("pngCompression", -1, -1, 9);
+
     /* Init fields in the Blocks category. */
     static { pop(); push("blocks"); }
 
@@ -259,6 +278,17 @@ public class Cfg {
         .comment("Whether to skip over any invalid presets and simply not load them.")
         .define("ignoreInvalidPresets", false);
 
+    public static final BooleanValue variantStats = common
+        .comment("Whether to measure how often each variant delegates to its background",
+                 "and foreground blocks and how long those calls take. These stats can",
+                 "be displayed with /osv stats and toggled at any time.")
+        .define("variantStats", false);
+
+    public static final IntValue variantStatsInterval = common
+        .comment("The number of seconds between writing variant stats to the log while",
+                 "they are enabled. Set this to 0 to disable logging.")
+        .defineInRange("variantStatsInterval", 300, 0, Integer.MAX_VALUE);
+
     static { pop(); push("tags"); }
 
     public static final BooleanValue copyBlockTags = common
@@ -399,6 +429,20 @@ public class Cfg {
                  "to fully support Quark at the moment.")
         .define("deferOresWhen", Collections.singletonList("quark"));
 
+    public static final BooleanValue batchedPlacement = common
+        .comment("Whether ore clusters should be placed all at once by writing directly",
+                 "to chunk sections when possible. This skips redundant chunk lookups and",
+                 "updates, but is experimental and may conflict with other mods.")
+        .define("batchedPlacement", false);
+
+    public static final BooleanValue mergeGenerators = common
+        .comment("Whether all of the ore and stone generators in each biome should be",
+                 "merged into a single feature per generation stage. This reduces the",
+                 "overhead of spawning many presets. Any features added by other mods",
+                 "after these generators will receive different seeds, as will these",
+                 "generators in worlds where structures are disabled.")
+        .define("mergeGenerators", false);
+
     private static Map<String, BooleanValue> getModSupport() {
         final Map<String, BooleanValue> modSupport = new LinkedHashMap<>();
         Reference.SUPPORTED_MODS.forEach(mod -> modSupport.put(mod, common.define(mod, true)));
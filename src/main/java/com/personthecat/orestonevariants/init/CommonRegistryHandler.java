@@ -3,6 +3,8 @@ package com.personthecat.orestonevariants.init;
 import com.personthecat.orestonevariants.config.Cfg;
 import com.personthecat.orestonevariants.io.ResourceHelper;
 import com.personthecat.orestonevariants.models.ModelConstructor;
+import com.personthecat.orestonevariants.world.MergedFeature;
+import com.personthecat.orestonevariants.world.StoneFeature;
 import com.personthecat.orestonevariants.world.VariantFeature;
 import com.personthecat.orestonevariants.world.VariantPlacement;
 import lombok.extern.log4j.Log4j2;
@@ -69,6 +71,8 @@ public class CommonRegistryHandler {
     @SubscribeEvent
     public static void registerOreFeatures(final RegistryEvent.Register<Feature<?>> event) {
         event.getRegistry().register(VariantFeature.INSTANCE);
+        event.getRegistry().register(StoneFeature.INSTANCE);
+        event.getRegistry().register(MergedFeature.INSTANCE);
     }
 
     @SubscribeEvent
@@ -0,0 +1,436 @@
+package com.personthecat.orestonevariants.io;
+
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.resources.IResourcePack;
+import net.minecraft.resources.ResourcePack;
+import net.minecraft.resources.ResourcePackType;
+import net.minecraft.resources.data.IMetadataSectionSerializer;
+import net.minecraft.util.ResourceLocation;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static com.personthecat.orestonevariants.io.PackPaths.findLocations;
+import static com.personthecat.orestonevariants.io.PackPaths.findNamespaces;
+import static com.personthecat.orestonevariants.io.PackPaths.normalize;
+import static com.personthecat.orestonevariants.io.PackPaths.toPath;
+
+/**
+ *   A resource pack which stores every generated resource in a single file, which is read through
+ * a memory-mapped buffer. This avoids creating and enumerating thousands of small files, which is
+ * especially slow on Windows and network file systems.
+ *
+ *   The archive contains the contents of every resource, followed by an index of their paths,
+ * offsets, and lengths. The last 16 bytes hold the offset of the index, the format version, and
+ * a magic number. Resources written during this session are kept in memory until {@link #flush}
+ * is called, at which point the archive is rewritten only if any of them have changed.
+ * Unchanged resources are copied directly from the previous archive.
+ */
+@Log4j2
+@ParametersAreNonnullByDefault
+public class ArchiveResourcePack implements IResourcePack {
+
+    /** Identifies the file as an OSV archive, i.e. "OSVP". */
+    private static final int MAGIC = 0x4F535650;
+
+    /** Increment this value whenever the layout of the archive changes. */
+    private static final int VERSION = 1;
+
+    /** The size of the offset, version, and magic number at the end of the file. */
+    private static final int FOOTER_SIZE = 16;
+
+    /** The name of the file containing the pack's metadata. */
+    private static final String PACK_MCMETA = "pack.mcmeta";
+
+    /** The extension of any archive which could not be moved into place. */
+    private static final String REPLACEMENT_EXTENSION = ".new";
+
+    private final File file;
+
+    /** The resources written during this session, which have not been flushed to the disk. */
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+
+    /** The contents of the archive on the disk, loaded when first needed. */
+    private volatile Archive archive = null;
+
+    /** Whether the previous contents of the archive should be dropped on the next flush. */
+    private volatile boolean discard = false;
+
+    public ArchiveResourcePack(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Stores a resource in memory until the next call to {@link #flush}, replacing any previous
+     * contents at this location.
+     *
+     * @param path The path relative to the root of the pack.
+     * @param bytes The complete contents of the resource.
+     */
+    public void put(String path, byte[] bytes) {
+        pending.put(normalize(path), bytes);
+    }
+
+    /**
+     * Retrieves the contents of a resource in this pack.
+     *
+     * @param path The path relative to the root of the pack.
+     * @return The contents of the resource, or else empty if it does not exist.
+     */
+    public Optional<byte[]> get(String path) {
+        final String key = normalize(path);
+        final byte[] bytes = pending.get(key);
+        if (bytes != null) {
+            return Optional.of(bytes);
+        }
+        final ByteBuffer buffer = getArchived(key);
+        if (buffer == null) {
+            return Optional.empty();
+        }
+        final byte[] copy = new byte[buffer.remaining()];
+        buffer.get(copy);
+        return Optional.of(copy);
+    }
+
+    /**
+     * Hides every resource which is currently in the archive. Any resources which are not
+     * written again before the next call to {@link #flush} will be removed from the archive.
+     */
+    public synchronized void discard() {
+        pending.clear();
+        discard = true;
+    }
+
+    /**
+     * Writes any changed resources to the disk, copying every other resource from the previous
+     * archive. Does nothing if no resources have changed. This must not be called while
+     * resources are still being written.
+     */
+    public synchronized void flush() throws IOException {
+        final Archive previous = getArchive();
+        if (!discard && !hasChanges(previous)) {
+            pending.clear();
+            return;
+        }
+        final Map<String, ByteBuffer> entries = new TreeMap<>();
+        if (!discard) {
+            previous.index.keySet().forEach(path -> entries.put(path, previous.slice(path)));
+        }
+        pending.forEach((path, bytes) -> entries.put(path, ByteBuffer.wrap(bytes)));
+
+        final Path target = file.toPath();
+        final Path tmp = Files.createTempFile(target.toAbsolutePath().getParent(), file.getName(), ".tmp");
+        File written = file;
+        try {
+            write(tmp, entries);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (FileSystemException e) {
+                // The archive is still mapped. Any earlier replacement may be mapped too,
+                // so the new archive always gets a name which has never been used.
+                written = nextReplacement();
+                Files.move(tmp, written.toPath());
+                log.debug("{} is in use. Wrote {} instead.", file.getName(), written.getName());
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        archive = load(written);
+        pending.clear();
+        discard = false;
+        log.info("Wrote {} resources to {}.", entries.size(), file.getName());
+    }
+
+    /** Determines whether any pending resources are different from the archived resources. */
+    private boolean hasChanges(Archive previous) {
+        for (Map.Entry<String, byte[]> entry : pending.entrySet()) {
+            final ByteBuffer archived = previous.slice(entry.getKey());
+            if (archived == null || !archived.equals(ByteBuffer.wrap(entry.getValue()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes the contents of every resource, followed by the index and footer. */
+    private static void write(Path path, Map<String, ByteBuffer> entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final Map<String, long[]> index = new LinkedHashMap<>();
+            for (Map.Entry<String, ByteBuffer> entry : entries.entrySet()) {
+                final ByteBuffer contents = entry.getValue();
+                index.put(entry.getKey(), new long[] { channel.position(), contents.remaining() });
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+            }
+            final long indexOffset = channel.position();
+            final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            dos.writeInt(index.size());
+            for (Map.Entry<String, long[]> entry : index.entrySet()) {
+                dos.writeUTF(entry.getKey());
+                dos.writeLong(entry.getValue()[0]);
+                dos.writeInt((int) entry.getValue()[1]);
+            }
+            dos.writeLong(indexOffset);
+            dos.writeInt(VERSION);
+            dos.writeInt(MAGIC);
+            dos.flush();
+        }
+    }
+
+    /** Returns a view of an archived resource, or else null if it does not exist. */
+    @Nullable
+    private ByteBuffer getArchived(String path) {
+        return discard ? null : getArchive().slice(path);
+    }
+
+    private Archive getArchive() {
+        Archive a = archive;
+        if (a == null) {
+            synchronized (this) {
+                a = archive;
+                if (a == null) {
+                    archive = a = load(promoteReplacement());
+                }
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Moves the newest archive which could not be replaced last session into place, if possible,
+     * and deletes any older replacements.
+     */
+    private File promoteReplacement() {
+        final List<File> replacements = getReplacements();
+        if (replacements.isEmpty()) {
+            return file;
+        }
+        final File newest = replacements.get(replacements.size() - 1);
+        for (File older : replacements.subList(0, replacements.size() - 1)) {
+            if (!older.delete()) {
+                log.debug("Unable to delete {}", older.getName());
+            }
+        }
+        try {
+            Files.move(newest.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Unable to replace {}. Using {} instead.", file.getName(), newest.getName(), e);
+            return newest;
+        }
+        return file;
+    }
+
+    /** Returns a file which can receive the new archive, which is newer than every other replacement. */
+    private File nextReplacement() {
+        final List<File> replacements = getReplacements();
+        final int last = replacements.isEmpty() ? 0 : getGeneration(replacements.get(replacements.size() - 1));
+        return new File(file.getPath() + "." + (last + 1) + REPLACEMENT_EXTENSION);
+    }
+
+    /** Every archive which could not be moved into place, with the oldest first. */
+    private List<File> getReplacements() {
+        final File[] siblings = file.getAbsoluteFile().getParentFile().listFiles();
+        if (siblings == null) {
+            return Collections.emptyList();
+        }
+        final List<File> replacements = new ArrayList<>();
+        for (File sibling : siblings) {
+            if (getGeneration(sibling) > 0) {
+                replacements.add(sibling);
+            }
+        }
+        replacements.sort(Comparator.comparingInt(this::getGeneration));
+        return replacements;
+    }
+
+    /** Reads the generation from the name of a replacement, e.g. 3 in resources.pack.3.new. */
+    private int getGeneration(File f) {
+        final String name = f.getName();
+        final String prefix = file.getName() + ".";
+        if (!name.startsWith(prefix) || !name.endsWith(REPLACEMENT_EXTENSION)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(prefix.length(), name.length() - REPLACEMENT_EXTENSION.length()));
+        } catch (NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    /** Maps the archive into memory and reads its index. Returns an empty archive on failure. */
+    private static Archive load(File file) {
+        if (!file.exists()) {
+            return Archive.EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < FOOTER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid archive size: " + size);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int end = (int) size - FOOTER_SIZE;
+            final long indexOffset = buffer.getLong(end);
+            if (buffer.getInt(end + 12) != MAGIC || buffer.getInt(end + 8) != VERSION || indexOffset < 0 || indexOffset > end) {
+                throw new IOException("Unsupported archive format");
+            }
+            final ByteBuffer indexBuffer = buffer.duplicate();
+            indexBuffer.position((int) indexOffset).limit(end);
+            final DataInputStream dis = new DataInputStream(new ByteBufferInputStream(indexBuffer));
+            final int count = dis.readInt();
+            if (count < 0 || count > end - indexOffset) {
+                throw new IOException("Invalid entry count: " + count);
+            }
+            final Map<String, long[]> index = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                final String path = dis.readUTF();
+                final long offset = dis.readLong();
+                final int length = dis.readInt();
+                if (offset < 0 || length < 0 || offset + length > indexOffset) {
+                    throw new IOException("Invalid entry: " + path);
+                }
+                index.put(path, new long[] { offset, length });
+            }
+            return new Archive(buffer, index);
+        } catch (IOException e) {
+            log.warn("Unable to read {}. Resources will be regenerated.", file.getName(), e);
+            return Archive.EMPTY;
+        }
+    }
+
+    @Override
+    public InputStream getRootResourceStream(String fileName) throws IOException {
+        final Optional<InputStream> is = open(fileName);
+        if (is.isPresent()) {
+            return is.get();
+        }
+        if (PACK_MCMETA.equals(fileName)) {
+            return JarFiles.getMcMeta();
+        }
+        throw new FileNotFoundException(fileName);
+    }
+
+    @Override
+    public InputStream getResourceStream(ResourcePackType type, ResourceLocation location) throws IOException {
+        final String path = toPath(type, location);
+        return open(path).orElseThrow(() -> new FileNotFoundException(path));
+    }
+
+    private Optional<InputStream> open(String path) {
+        final byte[] bytes = pending.get(path);
+        if (bytes != null) {
+            return Optional.of(new ByteArrayInputStream(bytes));
+        }
+        final ByteBuffer buffer = getArchived(path);
+        return buffer != null ? Optional.of(new ByteBufferInputStream(buffer)) : Optional.empty();
+    }
+
+    @Override
+    public Collection<ResourceLocation> getAllResourceLocations(ResourcePackType type, String namespace, String path, int maxDepth, Predicate<String> filter) {
+        final Set<ResourceLocation> locations = new LinkedHashSet<>();
+        findLocations(getPaths(), type, namespace, path, maxDepth, filter, locations);
+        return locations;
+    }
+
+    @Override
+    public boolean resourceExists(ResourcePackType type, ResourceLocation location) {
+        final String path = toPath(type, location);
+        return pending.containsKey(path) || getArchived(path) != null;
+    }
+
+    @Override
+    public Set<String> getResourceNamespaces(ResourcePackType type) {
+        final Set<String> namespaces = new HashSet<>();
+        findNamespaces(getPaths(), type, namespaces);
+        return namespaces;
+    }
+
+    /** Every path in this pack, including those which have not been flushed. */
+    private Set<String> getPaths() {
+        final Set<String> paths = new HashSet<>(pending.keySet());
+        if (!discard) {
+            paths.addAll(getArchive().index.keySet());
+        }
+        return paths;
+    }
+
+    @Nullable
+    @Override
+    public <T> T getMetadata(IMetadataSectionSerializer<T> deserializer) throws IOException {
+        try (InputStream is = getRootResourceStream(PACK_MCMETA)) {
+            return ResourcePack.getResourceMetadata(deserializer, is);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    /** The pack is reused after each reload, so the mapping is kept open. */
+    @Override
+    public void close() {}
+
+    /** The mapped contents of the archive, along with the location of each resource. */
+    private static class Archive {
+        static final Archive EMPTY = new Archive(ByteBuffer.allocate(0), Collections.emptyMap());
+
+        final ByteBuffer buffer;
+        final Map<String, long[]> index;
+
+        Archive(ByteBuffer buffer, Map<String, long[]> index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+        /** Returns an independent view of a single resource, or else null if it does not exist. */
+        @Nullable
+        ByteBuffer slice(String path) {
+            final long[] entry = index.get(path);
+            if (entry == null) {
+                return null;
+            }
+            final ByteBuffer view = buffer.duplicate();
+            view.position((int) entry[0]).limit((int) (entry[0] + entry[1]));
+            return view.slice();
+        }
+    }
+
+    /** Reads from a buffer without copying its contents. */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.personthecat.orestonevariants.io;
 
 import java.io.*;
 import java.util.function.Supplier;
+import org.apache.commons.io.IOUtils;
 import personthecat.fresult.interfaces.ThrowingSupplier;
 
 /** A DTO containing information about a file that needs to be created. */
@@ -9,8 +10,46 @@ public class FileSpec {
     public final ThrowingSupplier<InputStream, IOException> is;
     public final String path;
 
+    /** Streams the contents directly into the output, if present. */
+    private final StreamWriter writer;
+
     public FileSpec(Supplier<InputStream> is, String path) {
         this.is = is::get;
         this.path = path;
+        this.writer = null;
+    }
+
+    /**
+     * Creates a file whose contents are written directly into the destination, which avoids
+     * buffering them in memory first.
+     *
+     * @param writer Writes the full contents of this file into the given stream.
+     * @param path The relative path where the data will be kept.
+     */
+    public FileSpec(StreamWriter writer, String path) {
+        this.is = () -> {
+            final BufferOutputStream buffer = new BufferOutputStream();
+            writer.write(buffer);
+            return buffer.toInputStream();
+        };
+        this.path = path;
+        this.writer = writer;
+    }
+
+    /** Writes the contents of this file into the given stream. Does not close the stream. */
+    public void writeTo(OutputStream os) throws IOException {
+        if (writer != null) {
+            writer.write(os);
+        } else {
+            try (InputStream in = is.get()) {
+                IOUtils.copy(in, os);
+            }
+        }
+    }
+
+    /** Writes the contents of a file into a stream. */
+    @FunctionalInterface
+    public interface StreamWriter {
+        void write(OutputStream os) throws IOException;
     }
-}
\ No newline at end of file
+}
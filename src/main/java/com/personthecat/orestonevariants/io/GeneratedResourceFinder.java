@@ -18,7 +18,7 @@ public class GeneratedResourceFinder implements IPackFinder {
     @Override
     public void findPacks(Consumer<ResourcePackInfo> packs, ResourcePackInfo.IFactory factory) {
         final String name = ResourceHelper.DIR.getName();
-        final Supplier<IResourcePack> pack = () -> ResourceHelper.RESOURCES;
+        final Supplier<IResourcePack> pack = ResourceHelper::getPack;
 
         packs.accept(ResourcePackInfo.createResourcePack(name, true, pack, factory, Priority.TOP, DECORATOR));
     }
@@ -66,7 +66,10 @@ public class JarFiles {
         }
     }
 
-    /** Copies the MC meta file from the jar to the resources directory. */
+    /**
+     * Copies the MC meta file from the jar to the resources directory. The archive is not
+     * available at this point, so it reads the file directly from the jar instead.
+     */
     private static void copyMcMeta() {
         final File file = ResourceHelper.file(PACK_MCMETA);
         ensureDirExists(RESOURCES).expect("Error creating resources directory.");
@@ -76,6 +79,11 @@ public class JarFiles {
         }
     }
 
+    /** Opens the MC meta file used for this mod's resource pack, directly from the jar. */
+    public static InputStream getMcMeta() {
+        return getRequiredResource(PACK_MCMETA_PATH);
+    }
+
     /** Copies any file from the jar to the disk. */
     private static void copyFile(String from, String to) {
         final File dir = new File(to).getParentFile();
@@ -0,0 +1,116 @@
+package com.personthecat.orestonevariants.io;
+
+import net.minecraft.resources.IResourcePack;
+import net.minecraft.resources.ResourcePackType;
+import net.minecraft.resources.data.IMetadataSectionSerializer;
+import net.minecraft.util.ResourceLocation;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static com.personthecat.orestonevariants.io.PackPaths.findLocations;
+import static com.personthecat.orestonevariants.io.PackPaths.findNamespaces;
+import static com.personthecat.orestonevariants.io.PackPaths.normalize;
+import static com.personthecat.orestonevariants.io.PackPaths.toPath;
+
+/**
+ *   A resource pack which serves any resources generated during this session from memory. Any
+ * other resources are read from the backing pack, i.e. those which were generated on a previous
+ * launch. When nothing has been stored in memory, this pack behaves exactly like its delegate.
+ *
+ *   Resources are stored by their path relative to the root of the pack, e.g.
+ * <code>assets/osv/textures/block/stone.png</code>, and may be added from any thread.
+ */
+@ParametersAreNonnullByDefault
+public class MemoryResourcePack implements IResourcePack {
+
+    private final IResourcePack delegate;
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+    public MemoryResourcePack(IResourcePack delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Stores a resource in memory, replacing any previous contents at this location.
+     *
+     * @param path The path relative to the root of the pack.
+     * @param bytes The complete contents of the resource.
+     */
+    public void put(String path, byte[] bytes) {
+        files.put(normalize(path), bytes);
+    }
+
+    /**
+     * Retrieves the contents of a resource stored in memory.
+     *
+     * @param path The path relative to the root of the pack.
+     * @return The contents of the resource, or else empty if it was not generated this session.
+     */
+    public Optional<byte[]> get(String path) {
+        return Optional.ofNullable(files.get(normalize(path)));
+    }
+
+    /** Drops every resource stored in memory. */
+    public void clear() {
+        files.clear();
+    }
+
+    @Override
+    public InputStream getRootResourceStream(String fileName) throws IOException {
+        final byte[] bytes = files.get(fileName);
+        return bytes != null ? new ByteArrayInputStream(bytes) : delegate.getRootResourceStream(fileName);
+    }
+
+    @Override
+    public InputStream getResourceStream(ResourcePackType type, ResourceLocation location) throws IOException {
+        final byte[] bytes = files.get(toPath(type, location));
+        return bytes != null ? new ByteArrayInputStream(bytes) : delegate.getResourceStream(type, location);
+    }
+
+    @Override
+    public Collection<ResourceLocation> getAllResourceLocations(ResourcePackType type, String namespace, String path, int maxDepth, Predicate<String> filter) {
+        final Set<ResourceLocation> locations = new LinkedHashSet<>(delegate.getAllResourceLocations(type, namespace, path, maxDepth, filter));
+        findLocations(files.keySet(), type, namespace, path, maxDepth, filter, locations);
+        return locations;
+    }
+
+    @Override
+    public boolean resourceExists(ResourcePackType type, ResourceLocation location) {
+        return files.containsKey(toPath(type, location)) || delegate.resourceExists(type, location);
+    }
+
+    @Override
+    public Set<String> getResourceNamespaces(ResourcePackType type) {
+        final Set<String> namespaces = new HashSet<>(delegate.getResourceNamespaces(type));
+        findNamespaces(files.keySet(), type, namespaces);
+        return namespaces;
+    }
+
+    @Nullable
+    @Override
+    public <T> T getMetadata(IMetadataSectionSerializer<T> deserializer) throws IOException {
+        return delegate.getMetadata(deserializer);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.personthecat.orestonevariants.io;
+
+import net.minecraft.resources.ResourcePackType;
+import net.minecraft.util.ResourceLocation;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Helpers shared by the resource packs which store generated resources by their path relative
+ * to the root of the pack, e.g. <code>assets/osv/textures/block/stone.png</code>.
+ */
+final class PackPaths {
+
+    private PackPaths() {}
+
+    /** Converts a resource location into its path relative to the root of a pack. */
+    static String toPath(ResourcePackType type, ResourceLocation location) {
+        return type.getDirectoryName() + "/" + location.getNamespace() + "/" + location.getPath();
+    }
+
+    /** Converts a path into the format used as keys, i.e. no leading slash and forward slashes only. */
+    static String normalize(String path) {
+        path = path.replace('\\', '/');
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    /**
+     * Finds every resource inside of a directory, following the same rules as the vanilla packs.
+     *
+     * @param files The relative path of every resource in the pack.
+     * @param out Receives the location of each matching resource.
+     */
+    static void findLocations(Iterable<String> files, ResourcePackType type, String namespace, String path,
+            int maxDepth, Predicate<String> filter, Collection<ResourceLocation> out) {
+        final String prefix = type.getDirectoryName() + "/" + namespace + "/";
+        final String dir = prefix + path + "/";
+        for (String file : files) {
+            if (!file.startsWith(dir)) {
+                continue;
+            }
+            final String name = file.substring(file.lastIndexOf('/') + 1);
+            // Match the behavior of the vanilla packs, which ignore any metadata files.
+            if (name.endsWith(".mcmeta") || !filter.test(name)) {
+                continue;
+            }
+            if (countDirs(file.substring(dir.length())) <= maxDepth) {
+                out.add(new ResourceLocation(namespace, file.substring(prefix.length())));
+            }
+        }
+    }
+
+    /**
+     * Finds every namespace containing resources of the given type.
+     *
+     * @param files The relative path of every resource in the pack.
+     * @param out Receives each namespace.
+     */
+    static void findNamespaces(Iterable<String> files, ResourcePackType type, Collection<String> out) {
+        final String prefix = type.getDirectoryName() + "/";
+        for (String file : files) {
+            final int end = file.indexOf('/', prefix.length());
+            if (file.startsWith(prefix) && end > 0) {
+                out.add(file.substring(prefix.length(), end));
+            }
+        }
+    }
+
+    private static int countDirs(String path) {
+        int count = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
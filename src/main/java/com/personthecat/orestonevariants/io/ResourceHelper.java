@@ -1,13 +1,18 @@
 package com.personthecat.orestonevariants.io;
 
+import com.personthecat.orestonevariants.config.Cfg;
+import com.personthecat.orestonevariants.util.Lazy;
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.resources.*;
-import org.apache.commons.io.FileUtils;
 import personthecat.fresult.Result;
 import personthecat.fresult.Void;
 
 import javax.annotation.CheckReturnValue;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Optional;
 
 import static com.personthecat.orestonevariants.util.CommonMethods.getOSVDir;
 
@@ -18,12 +23,31 @@ public class ResourceHelper {
     /** The directory containing all of the generated resources for this mod. */
     public static final File DIR = new File(getOSVDir(), "resources");
 
-    /** The actual resource pack model to be registered and handled by the game. */
-    public static final IResourcePack RESOURCES = new FolderPack(DIR);
+    /** The single file containing all of the generated resources in archive mode. */
+    public static final File ARCHIVE = new File(getOSVDir(), "resources.pack");
+
+    /**
+     * The resource pack used in the folder and memory modes. Resources are read from the disk
+     * unless they were generated in memory during this session.
+     */
+    public static final MemoryResourcePack RESOURCES = new MemoryResourcePack(new FolderPack(DIR));
+
+    /** The resource pack used in archive mode. */
+    public static final ArchiveResourcePack ARCHIVE_RESOURCES = new ArchiveResourcePack(ARCHIVE);
+
+    /** The size of the buffer used when writing resources to the disk. */
+    private static final int BUFFER_SIZE = 8192;
 
     /** Whether the resources were freshly generated when the game loaded. */
     private static final boolean RESOURCES_CREATED = !DIR.exists();
 
+    /** Whether the archive was freshly generated when the game loaded. */
+    private static final boolean ARCHIVE_CREATED = !ARCHIVE.exists();
+
+    /** The hashes of every resource written in memory mode, so that unchanged files are never read. */
+    private static final Lazy<ResourceManifest> MANIFEST =
+        new Lazy<>(() -> ResourceManifest.load(file("resource_manifest.json")));
+
     /**
      * Writes a string of data at the relative location inside of the resources directory.
      *
@@ -33,7 +57,7 @@ public class ResourceHelper {
      */
     @CheckReturnValue
     public static Result<Void, IOException> writeResource(String path, String data) {
-        return writeResource(new FileSpec(() -> new ByteArrayInputStream(data.getBytes()), path));
+        return writeResource(new FileSpec(os -> os.write(data.getBytes()), path));
     }
 
     /**
@@ -44,12 +68,66 @@ public class ResourceHelper {
      */
     @CheckReturnValue
     public static Result<Void, IOException> writeResource(FileSpec spec) {
+        if (isArchived()) {
+            return Result.of(() -> ARCHIVE_RESOURCES.put(spec.path, toBytes(spec)));
+        }
         final File file = new File(DIR, spec.path);
-        final File parent = file.getParentFile();
-        if (!(parent.exists() || parent.mkdirs())) {
-            return Result.err(new IOException("Could not make directory: " + file.getParentFile()));
+        if (Cfg.resourceMode.get() == ResourceMode.MEMORY) {
+            return Result.of(() -> writeToMemory(spec, file));
+        }
+        return Result.of(() -> {
+            MANIFEST.get().remove(spec.path);
+            mkdirs(file.getParentFile());
+            writeAtomically(spec, file.toPath());
+        });
+    }
+
+    /**
+     * Stores the contents of a file in the resource pack, only writing them to the disk if their
+     * hash differs from the one recorded in the manifest. Unchanged files are never accessed.
+     */
+    private static void writeToMemory(FileSpec spec, File file) throws IOException {
+        final byte[] bytes = toBytes(spec);
+        RESOURCES.put(spec.path, bytes);
+        final String hash = ResourceManifest.hash(bytes);
+        if (!MANIFEST.get().isCurrent(spec.path, hash)) {
+            mkdirs(file.getParentFile());
+            writeAtomically(new FileSpec(os -> os.write(bytes), spec.path), file.toPath());
+            MANIFEST.get().put(spec.path, hash);
+        }
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!(dir.exists() || dir.mkdirs())) {
+            throw new IOException("Could not make directory: " + dir);
+        }
+    }
+
+    private static byte[] toBytes(FileSpec spec) throws IOException {
+        final BufferOutputStream buffer = new BufferOutputStream();
+        spec.writeTo(buffer);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Streams the contents of a file into a temporary file beside it, then moves the temporary
+     * file into place. The game will never observe a partially-written resource.
+     */
+    private static void writeAtomically(FileSpec spec, Path file) throws IOException {
+        final Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    OutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                spec.writeTo(os);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
         }
-        return Result.of(() -> FileUtils.copyInputStreamToFile(spec.is.get(), file));
     }
 
     /**
@@ -67,6 +145,55 @@ public class ResourceHelper {
         });
     }
 
+    /**
+     * Retrieves the contents of a resource which was generated in memory during this session.
+     *
+     * @param path The relative path in the resources folder.
+     * @return The contents of the resource, or else empty if it is only on the disk.
+     */
+    public static Optional<byte[]> getGenerated(String path) {
+        return isArchived() ? ARCHIVE_RESOURCES.get(path) : RESOURCES.get(path);
+    }
+
+    /**
+     * Writes any resources which are still being held in memory to the disk. In archive mode,
+     * this rewrites the archive if any resources have changed. Otherwise, this saves the manifest
+     * of resources written in memory mode. Call this once all resources have been generated.
+     *
+     * @return The result of this operation, wrapping a potential error.
+     */
+    @CheckReturnValue
+    public static Result<Void, IOException> flushResources() {
+        return Result.of(() -> {
+            if (isArchived()) {
+                ARCHIVE_RESOURCES.flush();
+            } else {
+                MANIFEST.get().save();
+            }
+        });
+    }
+
+    /**
+     * Forgets every resource generated in memory. In archive mode, any resources which are not
+     * generated again before the next flush will be removed from the archive. In memory mode,
+     * every resource will be written to the disk again.
+     */
+    public static void clearGenerated() {
+        RESOURCES.clear();
+        ARCHIVE_RESOURCES.discard();
+        MANIFEST.get().clear();
+    }
+
+    /** Returns the resource pack to be registered for the current resource mode. */
+    public static IResourcePack getPack() {
+        return isArchived() ? ARCHIVE_RESOURCES : RESOURCES;
+    }
+
+    /** Whether resources are being stored in the archive instead of the resources directory. */
+    public static boolean isArchived() {
+        return Cfg.resourceMode.get() == ResourceMode.ARCHIVE;
+    }
+
     /**
      * Returns a file in the resources directory.
      *
@@ -82,6 +209,6 @@ public class ResourceHelper {
      * and thus whether resources should always be dynamically generated.
      */
     public static boolean resourcesCreated() {
-        return RESOURCES_CREATED;
+        return isArchived() ? ARCHIVE_CREATED : RESOURCES_CREATED;
     }
 }
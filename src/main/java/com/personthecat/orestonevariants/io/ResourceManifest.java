@@ -0,0 +1,118 @@
+package com.personthecat.orestonevariants.io;
+
+import lombok.extern.log4j.Log4j2;
+import org.hjson.JsonObject;
+import org.hjson.JsonValue;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.personthecat.orestonevariants.util.CommonMethods.runEx;
+import static com.personthecat.orestonevariants.util.HjsonTools.readJson;
+import static com.personthecat.orestonevariants.util.HjsonTools.writeJson;
+
+/**
+ *   A persistent manifest of the resources written to the disk in memory mode. Each entry maps
+ * the relative path of a resource to a hash of its contents. This allows {@link ResourceHelper}
+ * to skip any resource which has not changed without touching the disk at all.
+ *
+ *   The manifest is only correct while the resources directory is managed by the mod. Files
+ * which are deleted by hand will not be restored until their contents change or the resources
+ * are regenerated, which clears the manifest.
+ */
+@Log4j2
+class ResourceManifest {
+
+    /** The hashes of every resource known to be on the disk. */
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+    /** The location of the manifest, inside of the resources directory. */
+    private final File file;
+
+    /** Whether any entries have changed since the manifest was loaded or saved. */
+    private volatile boolean dirty = false;
+
+    private ResourceManifest(File file) {
+        this.file = file;
+    }
+
+    /** Loads the manifest from the disk, or creates an empty manifest if none exists. */
+    static ResourceManifest load(File file) {
+        final ResourceManifest manifest = new ResourceManifest(file);
+        if (file.exists()) {
+            readJson(file).ifPresent(json -> {
+                for (JsonObject.Member member : json) {
+                    if (member.getValue().isString()) {
+                        manifest.hashes.put(member.getName(), member.getValue().asString());
+                    }
+                }
+            });
+        }
+        return manifest;
+    }
+
+    /**
+     * Determines whether the file at this location already contains these exact bytes.
+     *
+     * @param path The relative path of the resource.
+     * @param hash The hash of the new contents, as returned by {@link #hash}.
+     * @return <code>true</code>, if the file does not need to be written.
+     */
+    boolean isCurrent(String path, String hash) {
+        return hash.equals(hashes.get(path));
+    }
+
+    /** Records that the file at this location has been written with the given contents. */
+    void put(String path, String hash) {
+        if (!hash.equals(hashes.put(path, hash))) {
+            dirty = true;
+        }
+    }
+
+    /** Forgets the file at this location, as its contents were written without being hashed. */
+    void remove(String path) {
+        if (hashes.remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    /** Forgets every entry, so that every resource will be written again. */
+    void clear() {
+        hashes.clear();
+        dirty = true;
+    }
+
+    /** Writes the manifest to the disk, if anything has changed. */
+    void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        final JsonObject json = new JsonObject();
+        hashes.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(e -> json.add(e.getKey(), JsonValue.valueOf(e.getValue())));
+        writeJson(json, file).ifErr(e -> log.warn("Unable to save resource manifest", e));
+    }
+
+    /** Generates a hash of the contents of a resource as a hex string. */
+    static String hash(byte[] bytes) {
+        final MessageDigest digest = getDigest();
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest(bytes)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw runEx("SHA-1 is required by the JVM", e);
+        }
+    }
+}
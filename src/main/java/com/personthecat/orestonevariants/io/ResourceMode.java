@@ -0,0 +1,21 @@
+package com.personthecat.orestonevariants.io;
+
+/** The ways in which generated resources may be stored and served to the game. */
+public enum ResourceMode {
+
+    /** Resources are written to the resources directory and read back from the disk. */
+    FOLDER,
+
+    /**
+     * Resources generated during this session are served from memory. Files are only written to
+     * the resources directory when their contents have changed, so they are available on the
+     * next launch.
+     */
+    MEMORY,
+
+    /**
+     * Resources are stored in a single indexed file, which is read through a memory-mapped
+     * buffer. The file is only rewritten when any resources have changed.
+     */
+    ARCHIVE
+}
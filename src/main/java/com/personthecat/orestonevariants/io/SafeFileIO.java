@@ -129,7 +129,9 @@ public class SafeFileIO {
         if (!path.startsWith("/")) {
             path = "/" + path;
         }
-        return internalResourceExists(path) || fileExists(ResourceHelper.file(path), path);
+        return internalResourceExists(path)
+            || ResourceHelper.getGenerated(path).isPresent()
+            || (!ResourceHelper.isArchived() && fileExists(ResourceHelper.file(path), path));
     }
 
     /** Determines whether an asset is present in the jar. */
@@ -150,8 +152,12 @@ public class SafeFileIO {
         if (fromJar != null) {
             return full(fromJar);
         }
+        final Optional<byte[]> generated = ResourceHelper.getGenerated(path);
+        if (generated.isPresent()) {
+            return full(new ByteArrayInputStream(generated.get()));
+        }
         final File inResources = ResourceHelper.file(path);
-        if (fileExists(inResources, inResources.getPath())) {
+        if (!ResourceHelper.isArchived() && fileExists(inResources, inResources.getPath())) {
             try {
                 return full(new FileInputStream(inResources));
             } catch (IOException ignored) {}
@@ -0,0 +1,84 @@
+package com.personthecat.orestonevariants.textures;
+
+import java.awt.image.BufferedImage;
+
+/**
+ *   A mutable image stored as a flat array of packed ARGB pixels, in the same format used by
+ * {@link BufferedImage#getRGB(int, int)}. Pixels are stored in rows, where
+ * <code>index = y * width + x</code>. Animated textures are stored as a vertical strip of square
+ * frames, exactly as they are in the original sprite.
+ *
+ *   This replaces a matrix of {@link java.awt.Color} objects, which required one allocation per
+ * pixel and quickly became expensive for high resolution resource packs.
+ */
+public class ArgbImage {
+
+    public final int width;
+    public final int height;
+    public final int[] pixels;
+
+    public ArgbImage(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    public ArgbImage(int width, int height, int[] pixels) {
+        if (pixels.length != width * height) {
+            throw new IllegalArgumentException("Pixel array does not match dimensions");
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /** Copies every pixel out of a regular image in a single bulk transfer. */
+    public static ArgbImage fromImage(BufferedImage image) {
+        final int w = image.getWidth(), h = image.getHeight();
+        return new ArgbImage(w, h, image.getRGB(0, 0, w, h, null, 0, w));
+    }
+
+    /** Copies every pixel into a new image in a single bulk transfer. */
+    public BufferedImage toImage() {
+        final BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        bi.setRGB(0, 0, width, height, pixels, 0, width);
+        return bi;
+    }
+
+    public int get(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    public void set(int x, int y, int argb) {
+        pixels[y * width + x] = argb;
+    }
+
+    /** Returns an independent copy of this image. */
+    public ArgbImage copy() {
+        return new ArgbImage(width, height, pixels.clone());
+    }
+
+    public static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    public static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    public static int green(int argb) {
+        return (argb >> 8) & 0xFF;
+    }
+
+    public static int blue(int argb) {
+        return argb & 0xFF;
+    }
+
+    /** Packs the given channels, which must each be in the range 0-255. */
+    public static int argb(int r, int g, int b, int a) {
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /** Packs the given channels as a fully opaque color. */
+    public static int rgb(int r, int g, int b) {
+        return argb(r, g, b, 255);
+    }
+}
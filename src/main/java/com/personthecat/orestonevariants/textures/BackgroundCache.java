@@ -0,0 +1,119 @@
+package com.personthecat.orestonevariants.textures;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.personthecat.orestonevariants.textures.ImageTools.ensureSizeParity;
+
+/**
+ *   A bounded cache of background textures, shared by every preset during a single run. Most
+ * presets use one of a handful of backgrounds, which means that the same images would otherwise
+ * be read, decoded, and scaled hundreds of times.
+ *
+ *   Entries are weighed by their approximate size in memory. When the total weight exceeds the
+ * limit, the least recently used entries are evicted. Images returned by this cache are shared
+ * between threads and must not be modified.
+ */
+class BackgroundCache {
+
+    /** The frame count used as a key for the original, unscaled textures. */
+    private static final int ORIGINAL = 0;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Texture> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private long weight = 0;
+
+    BackgroundCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Retrieves the original contents of a background texture, loading it if necessary. Textures
+     * which fail to load are not cached.
+     *
+     * @param path The path to the background texture.
+     * @param loader Reads and decodes the texture when it is not already in the cache.
+     * @return The texture, or else empty if it could not be loaded.
+     */
+    Optional<Texture> get(String path, Supplier<Optional<Texture>> loader) {
+        final Key key = new Key(path, ORIGINAL, ORIGINAL);
+        final Texture cached = lookup(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return loader.get().map(t -> store(key, t));
+    }
+
+    /**
+     * Retrieves the background scaled to match a foreground, scaling it if necessary.
+     *
+     * @param path The path to the background texture.
+     * @param original The original background, as returned by {@link #get}.
+     * @param fg The foreground which the background is being scaled to.
+     * @return The background with the same width and frame count as the foreground.
+     */
+    ArgbImage getScaled(String path, Texture original, ArgbImage fg) {
+        final Key key = new Key(path, fg.width, fg.height / fg.width);
+        final Texture cached = lookup(key);
+        if (cached != null) {
+            return cached.image;
+        }
+        return store(key, new Texture(null, ensureSizeParity(original.image, fg))).image;
+    }
+
+    /** Drops every entry in the cache. */
+    synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private synchronized Texture lookup(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Adds a texture to the cache, unless another thread has already done so, and evicts the
+     * least recently used entries until the cache is within its limit.
+     */
+    private synchronized Texture store(Key key, Texture texture) {
+        final Texture existing = entries.putIfAbsent(key, texture);
+        if (existing != null) {
+            return existing;
+        }
+        weight += texture.weight();
+        final Iterator<Map.Entry<Key, Texture>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            final Map.Entry<Key, Texture> eldest = iterator.next();
+            if (eldest.getValue() != texture) {
+                weight -= eldest.getValue().weight();
+                iterator.remove();
+            }
+        }
+        return texture;
+    }
+
+    /** A background texture, along with its raw contents, if they are needed. */
+    @AllArgsConstructor
+    static class Texture {
+        final byte[] bytes;
+        final ArgbImage image;
+
+        long weight() {
+            return (bytes != null ? bytes.length : 0) + image.pixels.length * 4L;
+        }
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+        final String path;
+        final int width;
+        final int frames;
+    }
+}
@@ -1,13 +1,23 @@
 package com.personthecat.orestonevariants.textures;
 
-import com.personthecat.orestonevariants.io.BufferOutputStream;
-import net.minecraft.util.math.vector.Vector3i;
-import personthecat.fresult.Result;
-
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static com.personthecat.orestonevariants.textures.ArgbImage.alpha;
+import static com.personthecat.orestonevariants.textures.ArgbImage.argb;
+import static com.personthecat.orestonevariants.textures.ArgbImage.blue;
+import static com.personthecat.orestonevariants.textures.ArgbImage.green;
+import static com.personthecat.orestonevariants.textures.ArgbImage.red;
+import static com.personthecat.orestonevariants.textures.ArgbImage.rgb;
 
 public class ImageTools {
 
@@ -17,8 +27,12 @@ public class ImageTools {
     /** Pixels with lower alpha levels are considered transparent. */
     private static final int TRANSPARENCY_THRESHOLD = 17;
 
+    /** A PNG encoder for each thread, as they are expensive to look up and not thread-safe. */
+    private static final ThreadLocal<ImageWriter> PNG_WRITER =
+        ThreadLocal.withInitial(() -> ImageIO.getImageWritersByFormatName("png").next());
+
     /** A pixel with no color. */
-    private static final Color EMPTY_PIXEL = new Color(0, 0, 0, 0);
+    private static final int EMPTY_PIXEL = 0;
 
     /** The maximum "difference" between any two pixels. */
     private static final double MAX_DIFFERENCE = 441.673;
@@ -43,12 +57,12 @@ public class ImageTools {
      * perfect, but it is successful in the vast majority of cases for ore sprites
      * using the default texture pack and derived art styles.
      */
-    public static Color[][] getOverlay(Color[][] bg, Color[][] fg) {
-        final Color[][] overlay = new Color[bg.length][bg[0].length];
+    public static ArgbImage getOverlay(ArgbImage bg, ArgbImage fg) {
+        final ArgbImage overlay = new ArgbImage(bg.width, bg.height);
         final OverlayData data = new OverlayData(bg, fg);
-        for (int x = 0; x < bg.length; x++) {
-            for (int y = 0; y < bg[0].length; y++) {
-                overlay[x][y] = getOrePixel(bg[x][y], fg[x][y], data);
+        for (int x = 0; x < bg.width; x++) {
+            for (int y = 0; y < bg.height; y++) {
+                overlay.set(x, y, getOrePixel(bg.get(x, y), fg.get(x, y), data));
             }
         }
         return overlay;
@@ -58,12 +72,11 @@ public class ImageTools {
      * Determines whether the foreground is different enough from
      * the background. If so, returns it.
      */
-    private static Color getOrePixel(Color bg, Color fg, OverlayData data) {
+    private static int getOrePixel(int bg, int fg, OverlayData data) {
         // First, check to remove any pixels that are almost
         // the same in both images, keeping any that are
         // clearly very different.
-        final Vector3i stdDiff = subtract(bg, fg);
-        final double stdDist = getDistance(stdDiff);
+        final double stdDist = getDistance(bg, fg);
         if (stdDist > 0.7 * data.maxDist) {
             return fg;
         } else if (stdDist < 0.1 * data.maxDist) {
@@ -71,9 +84,8 @@ public class ImageTools {
         }
         // Next, filter out any pixels that are specifically
         // darker versions of the background image.
-        final Color darkened = darken(bg, 45);
-        final Vector3i darkDiff = subtract(darkened, fg);
-        final double darkDist = getDistance(darkDiff);
+        final int darkened = darken(bg, 45);
+        final double darkDist = getDistance(darkened, fg);
         if (darkDist < 0.125 * (data.maxRel + 0.001 / data.bgDist + 0.001)) {
             return EMPTY_PIXEL;
         }
@@ -81,9 +93,8 @@ public class ImageTools {
         // foreground with the average color of the
         // background, focusing especially on the differences
         // per channel.
-        final Vector3i diff = subtract(data.bgAvg, fg);
-        final double dist = getDistance(diff);
-        final double relDist = getRelativeDistance(diff);
+        final double dist = getDistance(data.bgAvg, fg);
+        final double relDist = getRelativeDistance(data.bgAvg, fg);
         // Colorful backgrounds are consistently more difficult
         // to extract, while still having enough flexibility
         // that a single value can be a blanket fix.
@@ -98,24 +109,23 @@ public class ImageTools {
      * Variant of #getOverlay which places less emphasis on stats and more
      * on a known level of difference to achieve.
      */
-    public static Color[][] getOverlayManual(Color[][] bg, Color[][] fg, double threshold) {
-        final Color[][] overlay = new Color[bg.length][bg[0].length];
+    public static ArgbImage getOverlayManual(ArgbImage bg, ArgbImage fg, double threshold) {
+        final ArgbImage overlay = new ArgbImage(bg.width, bg.height);
         final OverlayData data = new OverlayData(bg, fg);
-        for (int x = 0; x < bg.length; x++) {
-            for (int y = 0; y < bg[0].length; y++) {
-                overlay[x][y] = getOrePixelManual(bg[x][y], fg[x][y], data, threshold);
+        for (int x = 0; x < bg.width; x++) {
+            for (int y = 0; y < bg.height; y++) {
+                overlay.set(x, y, getOrePixelManual(bg.get(x, y), fg.get(x, y), data, threshold));
             }
         }
         return overlay;
     }
 
     /** Variant of #getOrePixel which places more importance on the threshold. */
-    private static Color getOrePixelManual(Color bg, Color fg, OverlayData data, double threshold) {
+    private static int getOrePixelManual(int bg, int fg, OverlayData data, double threshold) {
         // First, check to remove any pixels that are almost
         // the same in both images, keeping any that are
         // clearly very different.
-        final Vector3i stdDiff = subtract(bg, fg);
-        final double stdDist = getDistance(stdDiff);
+        final double stdDist = getDistance(bg, fg);
         if (stdDist > 0.7 * data.maxDist) {
             return fg;
         } else if (stdDist < 0.1 * data.maxDist) {
@@ -125,9 +135,8 @@ public class ImageTools {
         // foreground with the average color of the
         // background, focusing especially on the differences
         // per channel.
-        final Vector3i diff = subtract(data.bgAvg, fg);
-        final double dist = getDistance(diff);
-        final double relDist = getRelativeDistance(diff);
+        final double dist = getDistance(data.bgAvg, fg);
+        final double relDist = getRelativeDistance(data.bgAvg, fg);
         if (dist + relDist * 10.0 > threshold) {
             return fg;
         }
@@ -135,12 +144,10 @@ public class ImageTools {
     }
 
     /** Determines whether any pixels in this image are less than opaque. */
-    public static boolean isTranslucent(Color[][] image) {
-        for (Color[] colors : image) {
-            for (Color color : colors) {
-                if (color.getAlpha() <= OPACITY_THRESHOLD) {
-                    return true;
-                }
+    public static boolean isTranslucent(ArgbImage image) {
+        for (int color : image.pixels) {
+            if (alpha(color) <= OPACITY_THRESHOLD) {
+                return true;
             }
         }
         return false;
@@ -150,124 +157,126 @@ public class ImageTools {
      * This algorithm takes an already generated overlay and applies the
      * texture of the original background behind it using a sort of push
      * and pull method.
+     *
+     * Neither the background nor the mask are scaled here, as they are shared by many overlays.
+     * Only the average color of the background is used, so it need not match the foreground.
+     *
+     * @param bg The background, scaled to match the foreground.
+     * @param maskScaled The vignette mask, scaled to match the foreground.
      */
-    public static Color[][] shadeOverlay(Color[][] overlay, Color[][] bg, Color[][] fg, Color[][] mask) {
-        final Color[][] maskScaled = ensureSizeParity(mask, fg);
-        final Color[][] bgScaled = ensureSizeParity(bg, fg);
+    public static ArgbImage shadeOverlay(ArgbImage overlay, ArgbImage bg, ArgbImage fg, ArgbImage maskScaled) {
         // This is an old line that looks like a bug, but it
-        // works and I'm keeping it.
-        final Color[][] bgFilled = fillColors(bgScaled, getAverageColor(bg));
-        final Color[][] texturePixels = convertToPushAndPull(bgFilled, fg);
-        final Color[][] maskedTexture = removePixels(texturePixels, maskScaled);
+        // works and I'm keeping it. The scaled background is
+        // filled with its own average color.
+        final int w = fg.width;
+        final ArgbImage bgFilled = fillColors(new ArgbImage(w, w * (fg.height / w)), getAverageColor(bg));
+        final ArgbImage texturePixels = convertToPushAndPull(bgFilled, fg);
+        final ArgbImage maskedTexture = removePixels(texturePixels, maskScaled);
         return overlay(maskedTexture, overlay);
     }
 
     /** Scales the background to the width of the foreground, repeating it for additional frames. */
-    public static Color[][] ensureSizeParity(Color[][] background, Color[][] foreground) {
+    public static ArgbImage ensureSizeParity(ArgbImage background, ArgbImage foreground) {
         // Todo: this can no longer account for multi-frame backgrounds.
-        final int w = foreground.length;
-        background = getColors(ImageTools.scale(getImage(background), w, w));
+        final int w = foreground.width;
+        background = ArgbImage.fromImage(ImageTools.scale(background.toImage(), w, w));
         background = addFramesToBackground(background, foreground);
         return background;
     }
 
-    /** Generates a matrix of colors from the input BufferedImage. */
-    public static Color[][] getColors(BufferedImage image) {
-        final int w = image.getWidth(), h = image.getHeight();
-        final Color[][] colors = new Color[w][h];
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                colors[x][y] = new Color(image.getRGB(x, y), true);
-            }
-        }
-        return colors;
+    /** Generates a packed image from the input BufferedImage. */
+    public static ArgbImage getColors(BufferedImage image) {
+        return ArgbImage.fromImage(image);
     }
 
-    /** Generates a BufferedImage from the input color matrix. */
-    public static BufferedImage getImage(Color[][] image) {
-        final int w = image.length, h = image[0].length;
-        final BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                bi.setRGB(x, y, image[x][y].getRGB());
-            }
+    /** Generates a BufferedImage from the input packed image. */
+    public static BufferedImage getImage(ArgbImage image) {
+        return image.toImage();
+    }
+
+    /**
+     * Encodes the input packed image as a PNG directly into the given stream. The encoder is
+     * reused by each thread and does not cache any data on the disk.
+     *
+     * @param image The image being written.
+     * @param compression The deflate level from 0-9, or -1 for the default level.
+     * @param os The destination of the encoded image. This stream will not be closed.
+     */
+    public static void writePng(ArgbImage image, int compression, OutputStream os) throws IOException {
+        final ImageWriter writer = PNG_WRITER.get();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(getImage(image), null, null), getWriteParam(writer, compression));
+        } finally {
+            writer.setOutput(null);
         }
-        return bi;
     }
 
-    /** Generates a faux InputStream from the input color matrix. */
-    public static InputStream getStream(Color[][] image) {
-        BufferOutputStream os = new BufferOutputStream();
-        Result.of(() -> ImageIO.write(getImage(image), "png", os))
-            .expect("Unable to generate faux InputStream from color matrix.");
-        return os.toInputStream();
+    /** Configures the compression level, if supported by this version of Java. */
+    private static ImageWriteParam getWriteParam(ImageWriter writer, int compression) {
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        if (compression >= 0 && param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            // The writer uses floor(9 * (1 - quality)) as its deflate level.
+            param.setCompressionQuality(Math.max(0.0F, 1.0F - (compression + 0.5F) / 9.0F));
+        }
+        return param;
     }
 
     /** Pupnewfster's original algorithm for generating dense ore sprites. */
-    public static Color[][] shiftImage(Color[][] image) {
-        final int w = image.length, h = image[0].length;
-        final Color[][] shifted = new Color[w][h];
+    public static ArgbImage shiftImage(ArgbImage image) {
+        final int w = image.width, h = image.height;
+        final ArgbImage shifted = new ArgbImage(w, h);
         final int frames = h / w;
         assert(1.0 * h / w == frames);
+        final int[] neighbors = new int[5];
         for (int f = 0; f < frames; f++) {
             for (int x = 0; x < w; x++) {
                 for (int y = 0; y < w; y++) {
                     int imageY = f * w + y;
-                    shifted[x][imageY] = getAverageColor(
-                        image[x][imageY],
-                        fromIndex(image, x - 1, imageY, f),
-                        fromIndex(image, x + 1, imageY, f),
-                        fromIndex(image, x, imageY - 1, f),
-                        fromIndex(image, x, imageY + 1, f)
-                    );
+                    neighbors[0] = image.get(x, imageY);
+                    neighbors[1] = fromIndex(image, x - 1, imageY, f);
+                    neighbors[2] = fromIndex(image, x + 1, imageY, f);
+                    neighbors[3] = fromIndex(image, x, imageY - 1, f);
+                    neighbors[4] = fromIndex(image, x, imageY + 1, f);
+                    shifted.set(x, imageY, getAverageColor(neighbors));
                 }
             }
         }
         return shifted;
     }
 
-    /** Variant of getAverageColor() which accepts a matrix. */
-    private static Color getAverageColor(Color[][] image) {
-        return getAverageColor(matrixToArray(image));
+    /** Variant of getAverageColor() which accepts an image. */
+    private static int getAverageColor(ArgbImage image) {
+        return getAverageColor(image.pixels);
     }
 
     /** Gets the average color from an array of colors. */
-    private static Color getAverageColor(Color... colors) {
+    private static int getAverageColor(int[] colors) {
         int r = 0, g = 0, b = 0;
         int count = 0;
-        for (Color color : colors) {
-            if (color.getAlpha() > OPACITY_THRESHOLD) {
-                r += color.getRed();
-                g += color.getGreen();
-                b += color.getBlue();
+        for (int color : colors) {
+            if (alpha(color) > OPACITY_THRESHOLD) {
+                r += red(color);
+                g += green(color);
+                b += blue(color);
                 count++;
             }
         }
         if (count == 0) {
             return EMPTY_PIXEL;
         }
-        return new Color(r / count, g / count, b / count);
-    }
-
-    /** Converts a 2D array of colors to a 1D array. */
-    private static Color[] matrixToArray(Color[][] matrix) {
-        final Color[] array = new Color[matrix.length * matrix[0].length];
-        int index = 0;
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[0].length; y++) {
-                array[index++] = matrix[x][y];
-            }
-        }
-        return array;
+        return rgb(r / count, g / count, b / count);
     }
 
     /** Determines the average difference from the input color. */
-    private static double getMaxDistance(Color[][] image, Color[][] from) {
+    private static double getMaxDistance(ArgbImage image, ArgbImage from) {
         double num = 0.0;
-        for (int x = 0; x < image.length; x++) {
-            for (int y = 0; y < image[0].length; y++) {
-                if (image[x][y].getAlpha() > TRANSPARENCY_THRESHOLD) {
-                    num = Math.max(num, getDistance(image[x][y], from[x][y]));
+        for (int x = 0; x < image.width; x++) {
+            for (int y = 0; y < image.height; y++) {
+                final int color = image.get(x, y);
+                if (alpha(color) > TRANSPARENCY_THRESHOLD) {
+                    num = Math.max(num, getDistance(color, from.get(x, y)));
                 }
             }
         }
@@ -275,35 +284,30 @@ public class ImageTools {
     }
 
     /** Determines the average difference from the input color. */
-    private static double getAverageDistance(Color[][] image) {
+    private static double getAverageDistance(ArgbImage image) {
         double sum = 0.0;
-        for (int x = 0; x < image.length - 1; x++) {
-            for (int y = 0; y < image[0].length - 1; y++) {
-                sum += getDistance(image[x][y], image[x+1][y]);
-                sum += getDistance(image[x][y], image[x][y+1]);
+        for (int x = 0; x < image.width - 1; x++) {
+            for (int y = 0; y < image.height - 1; y++) {
+                sum += getDistance(image.get(x, y), image.get(x + 1, y));
+                sum += getDistance(image.get(x, y), image.get(x, y + 1));
             }
         }
-        return sum / (image.length * image[0].length * 2);
-    }
-
-    private static Vector3i subtract(Color background, Color foreground) {
-        final int r = foreground.getRed() - background.getRed();
-        final int g = foreground.getGreen() - background.getGreen();
-        final int b = foreground.getBlue() - background.getBlue();
-        return new Vector3i(r, g, b);
+        return sum / (image.width * image.height * 2);
     }
 
-    private static double getDistance(Vector3i difference) {
-        final int r = difference.getX();
-        final int g = difference.getY();
-        final int b = difference.getZ();
+    /** Calculates the distance between two colors. */
+    private static double getDistance(int background, int foreground) {
+        final int r = red(foreground) - red(background);
+        final int g = green(foreground) - green(background);
+        final int b = blue(foreground) - blue(background);
         return Math.sqrt((r * r) + (g * g) + (b * b)) / MAX_DIFFERENCE;
     }
 
-    private static double getRelativeDistance(Vector3i difference) {
-        final int rO = difference.getX();
-        final int gO = difference.getY();
-        final int bO = difference.getZ();
+    /** Calculates a 0-1 indicator of which channels are the most different between two colors. */
+    private static double getRelativeDistance(int background, int foreground) {
+        final int rO = red(foreground) - red(background);
+        final int gO = green(foreground) - green(background);
+        final int bO = blue(foreground) - blue(background);
         // Get lowest number.
         final int min = Math.min(Math.min(rO, gO), bO);
         // Get ratings of which channels are the most different;
@@ -314,57 +318,41 @@ public class ImageTools {
         return Math.sqrt((rS * rS) + (gS * gS) + (bS * bS)) / MAX_ADJUSTMENT;
     }
 
-    private static double getMaxRelDist(Color[][] background, Color[][] foreground) {
+    private static double getMaxRelDist(ArgbImage background, ArgbImage foreground) {
         double num = 0;
-        for (int x = 0; x < background.length; x++) {
-            for (int y = 0; y < background[0].length; y++) {
-                final Vector3i diff = subtract(background[x][y], foreground[x][y]);
-                num = Math.max(num, getRelativeDistance(diff));
+        for (int x = 0; x < background.width; x++) {
+            for (int y = 0; y < background.height; y++) {
+                num = Math.max(num, getRelativeDistance(background.get(x, y), foreground.get(x, y)));
             }
         }
         return num;
     }
 
-    /** Returns a darker version of the input Color. */
-    private static Color darken(Color c, int amount) {
-        int r = c.getRed() - amount;
-        int g = c.getGreen() - amount;
-        int b = c.getBlue() - amount;
+    /** Returns a darker version of the input color. */
+    private static int darken(int c, int amount) {
+        int r = red(c) - amount;
+        int g = green(c) - amount;
+        int b = blue(c) - amount;
         r = Math.max(r, 0);
         g = Math.max(g, 0);
         b = Math.max(b, 0);
-        return new Color(r, g, b);
-    }
-
-    /** Calculates the distance between two colors. */
-    private static double getDistance(Color background, Color foreground) {
-        final int r = foreground.getRed() - background.getRed();
-        final int g = foreground.getGreen() - background.getGreen();
-        final int b = foreground.getBlue() - background.getBlue();
-        return Math.sqrt((r * r) + (g * g) + (b * b)) / MAX_DIFFERENCE;
+        return rgb(r, g, b);
     }
 
     /** Fills an entire image with a single color. */
-    private static Color[][] fillColors(Color[][] image, Color color) {
-        for (int x = 0; x < image.length; x++) {
-            for (int y = 0; y < image[0].length; y++) {
-                image[x][y] = color;
-            }
-        }
+    private static ArgbImage fillColors(ArgbImage image, int color) {
+        Arrays.fill(image.pixels, color);
         return image;
     }
 
     /** Repeats the background image until it is the height of the foreground. */
-    private static Color[][] addFramesToBackground(Color[][] background, Color[][] foreground) {
-        final int w = background.length, h = background[0].length, nh = foreground[0].length;
+    private static ArgbImage addFramesToBackground(ArgbImage background, ArgbImage foreground) {
+        final int w = background.width, h = background.height, nh = foreground.height;
         final int frames = nh / h;
-        final Color[][] newBackground = new Color[w][h * frames];
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                for (int i = 0; i < frames; i++) {
-                    newBackground[x][(h * i) + y] = background[x][y];
-                }
-            }
+        final ArgbImage newBackground = new ArgbImage(w, h * frames);
+        // Each frame is a contiguous block of rows.
+        for (int i = 0; i < frames; i++) {
+            System.arraycopy(background.pixels, 0, newBackground.pixels, i * w * h, w * h);
         }
         return newBackground;
     }
@@ -374,20 +362,22 @@ public class ImageTools {
      * Uses isPixelDarker() to determine whether each pixel should be
      * black or white (push or pull).
      */
-    private static Color[][] convertToPushAndPull(Color[][] background, Color[][] foreground) {
-        final Color[][] image = new Color[foreground.length][foreground[0].length];
-        for (int x = 0; x < foreground.length; x++) {
-            for (int y = 0; y < foreground[0].length; y++) {
-                int alpha = (int) (SHADE_OPACITY * getDistance(foreground[x][y], background[x][y]));
+    private static ArgbImage convertToPushAndPull(ArgbImage background, ArgbImage foreground) {
+        final ArgbImage image = new ArgbImage(foreground.width, foreground.height);
+        for (int x = 0; x < foreground.width; x++) {
+            for (int y = 0; y < foreground.height; y++) {
+                final int bg = background.get(x, y);
+                final int fg = foreground.get(x, y);
+                int alpha = (int) (SHADE_OPACITY * getDistance(fg, bg));
                 if (alpha > SHADE_CUTOFF) {
                     alpha = SHADE_CUTOFF;
                 } else if (alpha < 0) {
                     alpha = 0;
                 }
-                if (isPixelDarker(background[x][y], foreground[x][y])) {
-                    image[x][y] = new Color(0, 0, 0, alpha);
+                if (isPixelDarker(bg, fg)) {
+                    image.set(x, y, argb(0, 0, 0, alpha));
                 } else {
-                    image[x][y] = new Color(255, 255, 255, alpha);
+                    image.set(x, y, argb(255, 255, 255, alpha));
                 }
             }
         }
@@ -395,36 +385,34 @@ public class ImageTools {
     }
 
     /** Determines whether the foreground is lighter than the background. */
-    private static boolean isPixelDarker(Color background, Color foreground) {
-        final int fgTotal = Math.abs(foreground.getRed() + foreground.getGreen() + foreground.getBlue());
-        final int bgTotal = Math.abs(background.getRed() + background.getGreen() + background.getBlue());
+    private static boolean isPixelDarker(int background, int foreground) {
+        final int fgTotal = Math.abs(red(foreground) + green(foreground) + blue(foreground));
+        final int bgTotal = Math.abs(red(background) + green(background) + blue(background));
         return fgTotal < bgTotal;
     }
 
     /** Uses a mask to fade pixels out of an image. */
-    private static Color[][] removePixels(Color[][] image, Color[][] mask) {
-        for (int x = 0; x < image.length; x++) {
-            for (int y = 0; y < image[0].length; y++) {
-                final int r = image[x][y].getRed();
-                final int g = image[x][y].getGreen();
-                final int b = image[x][y].getBlue();
-                int a = (int) ((double) image[x][y].getAlpha() * (1.0 - ((double) mask[x][y].getAlpha() / 255)));
+    private static ArgbImage removePixels(ArgbImage image, ArgbImage mask) {
+        for (int x = 0; x < image.width; x++) {
+            for (int y = 0; y < image.height; y++) {
+                final int color = image.get(x, y);
+                int a = (int) ((double) alpha(color) * (1.0 - ((double) alpha(mask.get(x, y)) / 255)));
                 if (a < 0) {
                     a = 0;
                 } else if (a > 255) {
                     a = 255;
                 }
-                image[x][y] = new Color(r, g, b, a);
+                image.set(x, y, argb(red(color), green(color), blue(color), a));
             }
         }
         return image;
     }
 
     /** Blends the foreground above the background. */
-    private static Color[][] overlay(Color[][] background, Color[][] foreground) {
-        for (int x = 0; x < foreground.length; x++) {
-            for (int y = 0; y < foreground[0].length; y++) {
-                foreground[x][y] = blendPixels(background[x][y], foreground[x][y]);
+    private static ArgbImage overlay(ArgbImage background, ArgbImage foreground) {
+        for (int x = 0; x < foreground.width; x++) {
+            for (int y = 0; y < foreground.height; y++) {
+                foreground.set(x, y, blendPixels(background.get(x, y), foreground.get(x, y)));
             }
         }
         return foreground;
@@ -435,30 +423,31 @@ public class ImageTools {
      * alpha level. Foreground gets alpha * its color, background gets the
      * rest * its color. The final alpha is the sum of both.
      */
-    private static Color blendPixels(Color bg, Color fg) {
+    private static int blendPixels(int bg, int fg) {
         final int r, g, b;
-        if (fg.getAlpha() > OPACITY_THRESHOLD) {
-            r = fg.getRed();
-            g = fg.getGreen();
-            b = fg.getBlue();
+        final int fgAlpha = alpha(fg);
+        if (fgAlpha > OPACITY_THRESHOLD) {
+            r = red(fg);
+            g = green(fg);
+            b = blue(fg);
         } else {
-            r = ((fg.getRed() * fg.getAlpha()) + (bg.getRed() * (255 - fg.getAlpha()))) / 255;
-            g = ((fg.getGreen() * fg.getAlpha()) + (bg.getGreen() * (255 - fg.getAlpha()))) / 255;
-            b = ((fg.getBlue() * fg.getAlpha()) + (bg.getBlue() * (255 - fg.getAlpha()))) / 255;
+            r = ((red(fg) * fgAlpha) + (red(bg) * (255 - fgAlpha))) / 255;
+            g = ((green(fg) * fgAlpha) + (green(bg) * (255 - fgAlpha))) / 255;
+            b = ((blue(fg) * fgAlpha) + (blue(bg) * (255 - fgAlpha))) / 255;
         }
-        int a = fg.getAlpha() + bg.getAlpha();
+        int a = fgAlpha + alpha(bg);
         if (a < TRANSPARENCY_THRESHOLD && r == 255 && g == 255 && b == 255) {
             return EMPTY_PIXEL; // Don't keep white pixels.
         }
         a = limitRange((int) ((double) a * TEXTURE_SHARPEN_RATIO));
 
-        return new Color(r, g, b, a);
+        return argb(r, g, b, a);
     }
 
-    private static Color fromIndex(Color[][] image, int x, int y , int frame) {
-        final int w = image.length;
-        return ((x < 0) || (y < frame * w) || (x >= w) || (y >= (frame + 1) * w) || (image[x][y].getAlpha() == 34)) ?
-                EMPTY_PIXEL : image[x][y];
+    private static int fromIndex(ArgbImage image, int x, int y , int frame) {
+        final int w = image.width;
+        return ((x < 0) || (y < frame * w) || (x >= w) || (y >= (frame + 1) * w) || (alpha(image.get(x, y)) == 34)) ?
+                EMPTY_PIXEL : image.get(x, y);
     }
 
     private static BufferedImage scale(BufferedImage image, int x, int y) {
@@ -475,12 +464,12 @@ public class ImageTools {
     }
 
     private static class OverlayData {
-        private final Color bgAvg;
+        private final int bgAvg;
         private final double bgDist;
         private final double maxDist;
         private final double maxRel;
 
-        OverlayData(Color[][] bg, Color[][] fg) {
+        OverlayData(ArgbImage bg, ArgbImage fg) {
             // Repeated calculations could be mitigated by storing
             // bg data in a separate object. This would require
             this.bgAvg = getAverageColor(bg);
@@ -489,4 +478,4 @@ public class ImageTools {
             this.maxRel = getMaxRelDist(bg, fg);
         }
     }
-}
\ No newline at end of file
+}
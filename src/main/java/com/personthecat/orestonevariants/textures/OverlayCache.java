@@ -0,0 +1,135 @@
+package com.personthecat.orestonevariants.textures;
+
+import com.personthecat.orestonevariants.io.ResourceHelper;
+import lombok.extern.log4j.Log4j2;
+import org.hjson.JsonObject;
+import org.hjson.JsonValue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.personthecat.orestonevariants.util.CommonMethods.runEx;
+import static com.personthecat.orestonevariants.util.HjsonTools.readJson;
+import static com.personthecat.orestonevariants.util.HjsonTools.writeJson;
+
+/**
+ *   A persistent manifest recording which inputs were used to generate each set of overlays.
+ * Each entry maps the path of a normal overlay to a hash of its background and foreground
+ * bytes, its threshold, the vignette mask, and {@link #ALGORITHM_VERSION}. This allows
+ * {@link SpriteHandler} to regenerate only the overlays whose inputs have changed.
+ *
+ *   Entries may be read and updated from any number of threads.
+ */
+@Log4j2
+@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+class OverlayCache {
+
+    /**
+     * Increment this value whenever the output of {@link ImageTools} changes, so that every
+     * overlay will be regenerated on the next run.
+     */
+    private static final int ALGORITHM_VERSION = 1;
+
+    /** The location of the manifest, inside of the resources directory. */
+    private static final File FILE = ResourceHelper.file("overlay_cache.json");
+
+    /** The hashes which were recorded the last time overlays were generated. */
+    private final Map<String, String> previous;
+
+    /** The hashes recorded during this run, which will replace the previous manifest. */
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+
+    private OverlayCache(Map<String, String> previous) {
+        this.previous = previous;
+    }
+
+    /** Loads the manifest from the disk, or creates an empty manifest if none exists. */
+    static OverlayCache load() {
+        final Map<String, String> previous = new ConcurrentHashMap<>();
+        if (FILE.exists()) {
+            readJson(FILE).ifPresent(json -> {
+                for (JsonObject.Member member : json) {
+                    if (member.getValue().isString()) {
+                        previous.put(member.getName(), member.getValue().asString());
+                    }
+                }
+            });
+        }
+        return new OverlayCache(previous);
+    }
+
+    /**
+     * Determines whether any existing overlays at this location may be reused. Overlays which
+     * have never been recorded are assumed to be valid, as they may have been placed here by
+     * the user or generated by an older version of the mod.
+     *
+     * @param output The path to the normal overlay.
+     * @param hash The hash of the inputs currently being used for this overlay.
+     * @return <code>true</code>, if the inputs have not changed.
+     */
+    boolean isCurrent(String output, String hash) {
+        final String last = previous.get(output);
+        return last == null || last.equals(hash);
+    }
+
+    /** Records the inputs used for the overlays at this location. */
+    void put(String output, String hash) {
+        current.put(output, hash);
+    }
+
+    /** Writes every entry recorded during this run to the disk. */
+    void save() {
+        final JsonObject json = new JsonObject();
+        current.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(e -> json.add(e.getKey(), JsonValue.valueOf(e.getValue())));
+        writeJson(json, FILE).ifErr(e -> log.warn("Unable to save overlay cache", e));
+    }
+
+    /**
+     * Generates a hash of every input used to generate a set of overlays.
+     *
+     * @param bg The raw bytes of the background texture.
+     * @param fg The raw bytes of the foreground texture.
+     * @param threshold The manual overlay threshold, if any.
+     * @param mask The vignette mask used for shaded overlays.
+     * @return The hash as a hex string.
+     */
+    static String hash(byte[] bg, byte[] fg, Optional<Float> threshold, ArgbImage mask) {
+        final MessageDigest digest = getDigest();
+        digest.update(ByteBuffer.allocate(4).putInt(ALGORITHM_VERSION).array());
+        update(digest, bg);
+        update(digest, fg);
+        digest.update(String.valueOf(threshold.orElse(null)).getBytes(StandardCharsets.UTF_8));
+
+        final ByteBuffer pixels = ByteBuffer.allocate(mask.pixels.length * 4);
+        pixels.asIntBuffer().put(mask.pixels);
+        digest.update(pixels);
+
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /** Writes the length of the array before its contents, so that inputs cannot run together. */
+    private static void update(MessageDigest digest, byte[] bytes) {
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw runEx("SHA-1 is required by the JVM", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.personthecat.orestonevariants.textures;
+
+import com.personthecat.orestonevariants.config.Cfg;
+import com.personthecat.orestonevariants.io.ResourceHelper;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.client.Minecraft;
+import net.minecraft.resources.IReloadableResourceManager;
+import net.minecraft.resources.IResourceManager;
+import net.minecraft.resources.ResourcePackInfo;
+import net.minecraftforge.resource.IResourceType;
+import net.minecraftforge.resource.ISelectiveResourceReloadListener;
+import net.minecraftforge.resource.VanillaResourceType;
+import personthecat.fresult.Result;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ *   Runs the incremental overlay pass again whenever the enabled resource packs change. Only
+ * overlays whose source textures have changed are regenerated, as recorded by the
+ * {@link OverlayCache}. This is subject to the same conditions as generating overlays when the
+ * game loads.
+ *
+ *   Textures have already been stitched by the time this listener runs, so another reload is
+ * scheduled if any overlays were regenerated. Nothing will have changed during that reload.
+ */
+@Log4j2
+@ParametersAreNonnullByDefault
+public class OverlayReloadListener implements ISelectiveResourceReloadListener {
+
+    /** The names of the resource packs which were enabled the last time overlays were checked. */
+    private List<String> lastPacks;
+
+    private OverlayReloadListener(List<String> lastPacks) {
+        this.lastPacks = lastPacks;
+    }
+
+    /** Registers the listener, assuming that overlays are up to date with the current packs. */
+    public static void register() {
+        final IResourceManager manager = Minecraft.getInstance().getResourceManager();
+        if (manager instanceof IReloadableResourceManager) {
+            ((IReloadableResourceManager) manager).addReloadListener(new OverlayReloadListener(getEnabledPacks()));
+        }
+    }
+
+    @Override
+    public void onResourceManagerReload(IResourceManager manager, Predicate<IResourceType> predicate) {
+        if (!predicate.test(VanillaResourceType.TEXTURES)) {
+            return;
+        }
+        final List<String> packs = getEnabledPacks();
+        if (packs.equals(lastPacks)) {
+            return;
+        }
+        lastPacks = packs;
+        // Overlays are only read from resource packs when this option is enabled.
+        if (!Cfg.overlaysFromRp.get() || !(Cfg.generateResources.get() || ResourceHelper.resourcesCreated())) {
+            return;
+        }
+        log.info("Resource packs changed. Checking overlays.");
+        if (SpriteHandler.generateOverlays() > 0) {
+            ResourceHelper.flushResources().ifErr(Result::WARN);
+            Minecraft.getInstance().scheduleResourcesRefresh();
+        }
+    }
+
+    private static List<String> getEnabledPacks() {
+        return Minecraft.getInstance()
+            .getResourcePackList()
+            .getEnabledPacks()
+            .stream()
+            .map(ResourcePackInfo::getName)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,133 @@
+package com.personthecat.orestonevariants.textures;
+
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.resources.IResourcePack;
+import net.minecraft.resources.ResourcePackType;
+import net.minecraft.util.ResourceLocation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.personthecat.orestonevariants.util.CommonMethods.empty;
+import static com.personthecat.orestonevariants.util.CommonMethods.full;
+
+/**
+ *   Records which of the enabled resource packs has the highest priority for each resource path.
+ * Every texture is indexed up front by listing the contents of each pack once, which means that
+ * looking up a texture never needs to touch the packs at all. Any other paths, including
+ * texture metadata, are found by scanning the packs once and remembering the result.
+ *
+ *   An index is only valid for the list of packs it was created with. It must be discarded
+ * whenever the enabled packs change or are reloaded.
+ */
+@Log4j2
+class ResourcePackIndex {
+
+    /** The type of resources being indexed. */
+    private static final ResourcePackType TYPE = ResourcePackType.CLIENT_RESOURCES;
+
+    /** The root folder containing every resource indexed up front. */
+    private static final String TEXTURES = "textures";
+
+    /**
+     * The extension of metadata files, which vanilla packs leave out of their listings even when
+     * they are inside of the texture folder.
+     */
+    private static final String MCMETA = ".mcmeta";
+
+    /** Every enabled pack, with the highest priority first. */
+    private final List<IResourcePack> packs;
+
+    /** The highest priority pack containing each texture. */
+    private final Map<ResourceLocation, IResourcePack> textures;
+
+    /** Whether every pack was able to list its textures, in which case the index is authoritative. */
+    private final boolean complete;
+
+    /** The results of each scan for resources which are not textures. */
+    private final Map<ResourceLocation, Optional<IResourcePack>> scanned = new ConcurrentHashMap<>();
+
+    private ResourcePackIndex(List<IResourcePack> packs, Map<ResourceLocation, IResourcePack> textures, boolean complete) {
+        this.packs = packs;
+        this.textures = textures;
+        this.complete = complete;
+    }
+
+    /**
+     * Lists the textures in each pack, allowing higher priority packs to replace the entries
+     * of lower priority packs.
+     *
+     * @param enabled Every enabled pack, with the lowest priority first.
+     * @return A new index of these packs.
+     */
+    static ResourcePackIndex create(List<IResourcePack> enabled) {
+        final Map<ResourceLocation, IResourcePack> textures = new HashMap<>();
+        boolean complete = true;
+        for (IResourcePack rp : enabled) {
+            try {
+                for (String namespace : rp.getResourceNamespaces(TYPE)) {
+                    for (ResourceLocation rl : rp.getAllResourceLocations(TYPE, namespace, TEXTURES, Integer.MAX_VALUE, s -> true)) {
+                        textures.put(rl, rp);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to index {}. Textures will be found by scanning instead.", rp.getName(), e);
+                complete = false;
+            }
+        }
+        final List<IResourcePack> packs = new ArrayList<>(enabled);
+        Collections.reverse(packs);
+        log.debug("Indexed {} textures in {} resource packs.", textures.size(), packs.size());
+        return new ResourcePackIndex(packs, textures, complete);
+    }
+
+    /** Determines whether any enabled pack contains this resource. */
+    boolean exists(ResourceLocation rl) {
+        return find(rl).isPresent();
+    }
+
+    /** Opens this resource from the highest priority pack which contains it. */
+    Optional<InputStream> open(ResourceLocation rl) {
+        final Optional<IResourcePack> rp = find(rl);
+        if (rp.isPresent()) {
+            synchronized (this) {
+                try {
+                    return full(rp.get().getResourceStream(TYPE, rl));
+                } catch (IOException | NullPointerException ignored) {}
+            }
+        }
+        return empty();
+    }
+
+    private Optional<IResourcePack> find(ResourceLocation rl) {
+        if (isIndexed(rl)) {
+            return Optional.ofNullable(textures.get(rl));
+        }
+        return scanned.computeIfAbsent(rl, this::scan);
+    }
+
+    /** Determines whether the listing of textures is authoritative for this resource. */
+    private boolean isIndexed(ResourceLocation rl) {
+        final String path = rl.getPath();
+        return complete && path.startsWith(TEXTURES + "/") && !path.endsWith(MCMETA);
+    }
+
+    /** Checks each pack in order of priority. Packs are not designed for concurrent use. */
+    private synchronized Optional<IResourcePack> scan(ResourceLocation rl) {
+        for (IResourcePack rp : packs) {
+            try {
+                if (rp.resourceExists(TYPE, rl)) {
+                    return full(rp);
+                }
+            } catch (NullPointerException ignored) {}
+        }
+        return empty();
+    }
+}
@@ -3,8 +3,10 @@ package com.personthecat.orestonevariants.textures;
 import com.personthecat.orestonevariants.Main;
 import com.personthecat.orestonevariants.config.Cfg;
 import com.personthecat.orestonevariants.init.LazyRegistries;
+import com.personthecat.orestonevariants.io.BufferOutputStream;
 import com.personthecat.orestonevariants.io.FileSpec;
 import com.personthecat.orestonevariants.io.ResourceHelper;
+import com.personthecat.orestonevariants.io.SafeFileIO;
 import com.personthecat.orestonevariants.properties.OreProperties;
 import com.personthecat.orestonevariants.properties.TextureProperties;
 import com.personthecat.orestonevariants.util.PathSet;
@@ -13,32 +15,31 @@ import lombok.extern.log4j.Log4j2;
 import net.minecraft.client.Minecraft;
 import net.minecraft.resources.IResourcePack;
 import net.minecraft.resources.ResourcePackInfo;
-import net.minecraft.resources.ResourcePackType;
-import net.minecraft.util.ResourceLocation;
+import org.apache.commons.io.IOUtils;
 import personthecat.fresult.Result;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.personthecat.orestonevariants.io.SafeFileIO.getResource;
-import static com.personthecat.orestonevariants.textures.ImageTools.ensureSizeParity;
 import static com.personthecat.orestonevariants.textures.ImageTools.getOverlay;
 import static com.personthecat.orestonevariants.textures.ImageTools.getOverlayManual;
-import static com.personthecat.orestonevariants.textures.ImageTools.getStream;
 import static com.personthecat.orestonevariants.textures.ImageTools.isTranslucent;
 import static com.personthecat.orestonevariants.textures.ImageTools.shadeOverlay;
 import static com.personthecat.orestonevariants.textures.ImageTools.shiftImage;
+import static com.personthecat.orestonevariants.textures.ImageTools.writePng;
 import static com.personthecat.orestonevariants.util.CommonMethods.empty;
 import static com.personthecat.orestonevariants.util.CommonMethods.f;
-import static com.personthecat.orestonevariants.util.CommonMethods.full;
 import static com.personthecat.orestonevariants.util.CommonMethods.runEx;
 import static com.personthecat.orestonevariants.util.CommonMethods.runExF;
 
@@ -50,25 +51,118 @@ public class SpriteHandler {
     private static final String MASK_LOCATION = f("/assets/{}/textures/mask.png", Main.MOD_ID);
 
     /** The mask used for removing edge pixels from larger textures. */
-    private static final Color[][] MASK = loadColors(MASK_LOCATION)
+    private static final ArgbImage MASK = loadColors(MASK_LOCATION)
         .orElseThrow(() -> runEx("Build error: mask path is invalid."));
 
-    /** Generates overlay sprites for all ore properties. */
-    public static void generateOverlays() {
-        for (OreProperties p : LazyRegistries.ORE_PROPERTIES) {
-            log.info("Generating textures for {}.", p.name);
+    /** The mask, as stored in the background cache so that it is only scaled once per size. */
+    private static final BackgroundCache.Texture MASK_TEXTURE = new BackgroundCache.Texture(null, MASK);
 
-            final Set<FileSpec> files = new HashSet<>();
-            generateStateOverlays(files, p.texture);
+    /** Guards the creation of the resource pack index. */
+    private static final Object PACK_LOCK = new Object();
 
-            // Write all of the files in the cache.
-            ResourceHelper.writeResources(files.toArray(new FileSpec[0]))
-                .expect("Error writing to resources directory");
+    /**
+     * An index of the enabled resource packs. This is rebuilt for each run, as the packs may
+     * have been changed or reloaded in between.
+     */
+    private static volatile ResourcePackIndex packIndex = null;
+
+    /** The maximum number of bytes used to cache background textures during each run. */
+    private static final long MAX_BACKGROUND_CACHE = 32 * 1024 * 1024;
+
+    /** Decoded and scaled backgrounds, which are shared by many presets. */
+    private static final BackgroundCache BACKGROUNDS = new BackgroundCache(MAX_BACKGROUND_CACHE);
+
+    /** The number of progress reports to log while generating overlays. */
+    private static final int NUM_REPORTS = 10;
+
+    /**
+     * The number of presets which may be in flight per thread. Finished presets hold their
+     * encoded files until they are written, so this bounds the memory used by a run.
+     */
+    private static final int PRESETS_PER_THREAD = 2;
+
+    /**
+     * Generates overlay sprites for all ore properties. Each preset is processed in parallel,
+     * but files are still written by the calling thread in registry order. This guarantees
+     * that the output is identical to generating each preset sequentially. Only a small window
+     * of presets is submitted ahead of the one being written, so that the results of a slow
+     * preset never pile up behind it.
+     *
+     * Overlays are only regenerated when their inputs have changed since the last run, as
+     * recorded by the {@link OverlayCache}.
+     *
+     * @return The number of overlay textures which were regenerated.
+     */
+    public static int generateOverlays() {
+        final long start = System.nanoTime();
+        final List<OreProperties> presets = new ArrayList<>();
+        LazyRegistries.ORE_PROPERTIES.forEach(presets::add);
+        final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final OverlayCache cache = OverlayCache.load();
+        packIndex = null;
+        log.info("Generating textures for {} presets using {} threads.", presets.size(), threads);
+
+        int regenerated = 0;
+        try {
+            final int window = threads * PRESETS_PER_THREAD;
+            final Deque<CompletableFuture<Set<FileSpec>>> tasks = new ArrayDeque<>(window);
+            final Iterator<OreProperties> queued = presets.iterator();
+            final int interval = Math.max(1, presets.size() / NUM_REPORTS);
+            for (int i = 0; i < presets.size(); i++) {
+                // Keep the window full, then wait for the oldest preset.
+                while (tasks.size() < window && queued.hasNext()) {
+                    final OreProperties p = queued.next();
+                    tasks.add(CompletableFuture.supplyAsync(() -> generatePreset(p, cache), pool));
+                }
+                final Set<FileSpec> files = join(tasks.poll());
+                for (FileSpec file : files) {
+                    if (file.path.endsWith(".png")) {
+                        regenerated++;
+                    }
+                }
+
+                // Write all of the files in the cache.
+                ResourceHelper.writeResources(files.toArray(new FileSpec[0]))
+                    .expect("Error writing to resources directory");
+
+                if ((i + 1) % interval == 0 && i + 1 < presets.size()) {
+                    log.info("Generated textures for {} / {} presets.", i + 1, presets.size());
+                }
+            }
+            cache.save();
+        } finally {
+            pool.shutdown();
+            packIndex = null;
+            BACKGROUNDS.clear();
+        }
+        log.info("Generated textures for {} presets in {} ms. {} overlays changed.",
+            presets.size(), (System.nanoTime() - start) / 1_000_000, regenerated);
+        return regenerated;
+    }
+
+    /** Generates every file needed by a single preset. May be called from any thread. */
+    private static Set<FileSpec> generatePreset(OreProperties p, OverlayCache cache) {
+        log.debug("Generating textures for {}.", p.name);
+        final Set<FileSpec> files = new LinkedHashSet<>();
+        generateStateOverlays(files, cache, p.texture);
+        return files;
+    }
+
+    /** Waits for a task to complete, rethrowing any error from the worker thread. */
+    private static <T> T join(CompletableFuture<T> task) {
+        try {
+            return task.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
     /** Generates each overlay variant for the current ore type. */
-    private static void generateStateOverlays(Set<FileSpec> files, TextureProperties tex) {
+    private static void generateStateOverlays(Set<FileSpec> files, OverlayCache cache, TextureProperties tex) {
         for (Map.Entry<String, List<String>> overlayEntry : tex.overlayPaths.entrySet()) {
             final List<String> originals = tex.originalPaths.get(overlayEntry.getKey());
             final List<String> overlays = overlayEntry.getValue();
@@ -77,62 +171,97 @@ public class SpriteHandler {
                 throw runEx("Build error: Generated overlay data does match the originals");
             }
             for (int i = 0; i < originals.size(); i++) {
-                handleVariants(files, tex.background, originals.get(i), overlays.get(i), tex.threshold);
+                handleVariants(files, cache, tex.background, originals.get(i), overlays.get(i), tex.threshold);
             }
         }
     }
 
-    /** Generates the main overlays, copying any .mcmeta files in the process. */
-    private static void handleVariants(Set<FileSpec> files, String background, String foreground, String output, Optional<Float> threshold) {
-        final Optional<Color[][]> fgColors = loadColors(foreground);
-        final Optional<Color[][]> bgColors = loadColors(background);
-        if (!fgColors.isPresent()) {
+    /**
+     * Generates the main overlays, copying any .mcmeta files in the process. When every overlay
+     * already exists and its inputs are unchanged, the foreground is never decoded.
+     */
+    private static void handleVariants(Set<FileSpec> files, OverlayCache cache, String background, String foreground, String output, Optional<Float> threshold) {
+        final Optional<byte[]> fgBytes = loadBytes(foreground);
+        final Optional<BackgroundCache.Texture> bgTexture = BACKGROUNDS.get(background, () -> loadTexture(background));
+        if (!fgBytes.isPresent()) {
             log.error("Missing fg sprite: {}", foreground);
         }
-        if (!bgColors.isPresent()) {
+        if (!bgTexture.isPresent()) {
             log.error("Missing bg sprite: {}", background);
         }
-        fgColors.ifPresent(fg ->
-            bgColors.ifPresent(bg -> {
+        fgBytes.ifPresent(fgRaw ->
+            bgTexture.ifPresent(bg -> {
                 // Generate paths.
                 final PathSet paths = new PathSet(output, "");
-                // Test whether all textures already exist.
-                // Cache the new files to be written.
-                generateOverlays(files, bg, fg, paths, threshold);
+                // Test whether the existing textures were generated from the same inputs.
+                final String hash = OverlayCache.hash(bg.bytes, fgRaw, threshold, MASK);
+                final boolean reuse = cache.isCurrent(paths.normal, hash);
+                if (!reuse) {
+                    log.debug("Inputs changed for {}. Regenerating.", paths.normal);
+                }
+                if (!reuse || !overlaysExist(paths)) {
+                    final Optional<ArgbImage> fgColors = decodeColors(fgRaw);
+                    if (!fgColors.isPresent()) {
+                        log.error("Missing fg sprite: {}", foreground);
+                        return;
+                    }
+                    // Make sure the background is scaled correctly.
+                    final ArgbImage bgScaled = BACKGROUNDS.getScaled(background, bg, fgColors.get());
+                    // Cache the new files to be written.
+                    generateOverlays(files, bgScaled, fgColors.get(), paths, threshold, reuse);
+                }
                 handleMcMeta(files, foreground, paths);
+                cache.put(paths.normal, hash);
             })
         );
     }
 
-    /** Generates all of the new overlays and places their information in an array. */
-    private static void generateOverlays(Set<FileSpec> files, Color[][] bg, Color[][] fg, PathSet paths, Optional<Float> threshold) {
-        // Make sure the background is scaled correctly.
-        final Color[][] bgScaled = ensureSizeParity(bg, fg);
+    /** Determines whether every variant of an overlay can already be found. */
+    private static boolean overlaysExist(PathSet paths) {
+        for (String path : paths) {
+            if (!resourceExists(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        // Attempt to load existing overlays.
-        final Optional<Color[][]> loadNormal = loadColors(paths.normal);
-        final Optional<Color[][]> loadShaded = loadColors(paths.shaded);
-        final Optional<Color[][]> loadDense = loadColors(paths.dense);
+    /** Generates all of the new overlays and places their information in an array. */
+    private static void generateOverlays(Set<FileSpec> files, ArgbImage bgScaled, ArgbImage fg, PathSet paths, Optional<Float> threshold, boolean reuse) {
+        // Attempt to load existing overlays, unless they are out of date.
+        final Optional<ArgbImage> loadNormal = reuse ? loadColors(paths.normal) : empty();
+        final Optional<ArgbImage> loadShaded = reuse ? loadColors(paths.shaded) : empty();
+        final Optional<ArgbImage> loadDense = reuse ? loadColors(paths.dense) : empty();
 
         // Generate overlays, if absent.
-        final Color[][] normalColors = loadNormal.orElseGet(() -> genOverlay(bgScaled, fg, threshold));
-        final Color[][] normalClone = cloneColors(normalColors);
-        final Color[][] shadedColors = loadShaded.orElseGet(() -> shadeOverlay(normalClone, bgScaled, fg, MASK));
-        final Color[][] denseColors = loadDense.orElseGet(() -> shiftImage(normalColors));
+        final ArgbImage normalColors = loadNormal.orElseGet(() -> genOverlay(bgScaled, fg, threshold));
+        final ArgbImage normalClone = normalColors.copy();
+        final ArgbImage shadedColors = loadShaded.orElseGet(() ->
+            shadeOverlay(normalClone, bgScaled, fg, BACKGROUNDS.getScaled(MASK_LOCATION, MASK_TEXTURE, fg)));
+        final ArgbImage denseColors = loadDense.orElseGet(() -> shiftImage(normalColors));
 
-        // Queue missing overlays to be copied.
+        // Queue missing overlays to be copied. These are encoded
+        // here so that the work is done by the worker threads.
         if (!loadNormal.isPresent()) {
-            files.add(new FileSpec(() -> getStream(normalColors), paths.normal));
+            files.add(new FileSpec(encode(normalColors)::writeTo, paths.normal));
         }
         if (!loadShaded.isPresent()) {
-            files.add(new FileSpec(() -> getStream(shadedColors), paths.shaded));
+            files.add(new FileSpec(encode(shadedColors)::writeTo, paths.shaded));
         }
         if (!loadDense.isPresent()) {
-            files.add(new FileSpec(() -> getStream(denseColors), paths.dense));
+            files.add(new FileSpec(encode(denseColors)::writeTo, paths.dense));
         }
     }
 
-    private static Color[][] genOverlay(Color[][] bg, Color[][] fg, Optional<Float> threshold) {
+    /** Encodes an image once, so that it can be written directly to the disk. */
+    private static BufferOutputStream encode(ArgbImage image) {
+        final BufferOutputStream os = new BufferOutputStream();
+        Result.of(() -> writePng(image, Cfg.pngCompression.get(), os))
+            .expect("Unable to encode generated overlay.");
+        return os;
+    }
+
+    private static ArgbImage genOverlay(ArgbImage bg, ArgbImage fg, Optional<Float> threshold) {
         if (isTranslucent(fg)) {
             return fg; // Already an overlay
         }
@@ -148,21 +277,36 @@ public class SpriteHandler {
         return empty();
     }
 
+    /** Reads the raw contents of a file, so that they can be both hashed and decoded. */
+    private static Optional<byte[]> loadBytes(String path) {
+        final Optional<InputStream> is = locateResource(path);
+        if (is.isPresent()) {
+            return Result.of(() -> {
+                try (InputStream stream = is.get()) {
+                    return IOUtils.toByteArray(stream);
+                }
+            }).get(Result::IGNORE);
+        }
+        return empty();
+    }
+
+    /** Reads and decodes a background texture, keeping its raw contents for hashing. */
+    private static Optional<BackgroundCache.Texture> loadTexture(String path) {
+        return loadBytes(path).flatMap(bytes ->
+            decodeColors(bytes).map(image -> new BackgroundCache.Texture(bytes, image)));
+    }
+
+    private static Optional<ArgbImage> decodeColors(byte[] bytes) {
+        return Result.of(() -> ImageIO.read(new ByteArrayInputStream(bytes))).get(Result::IGNORE)
+            .map(ImageTools::getColors);
+    }
+
     /** Scans all loaded jars and enabled resource packs for a file. */
     private static Optional<InputStream> locateResource(String path) {
         if (Cfg.overlaysFromRp.get()) {
-            final ResourceLocation asRL = PathTools.getResourceLocation(path);
-            final Iterator <IResourcePack> enabled = getEnabledPacks()
-                .collect(Collectors.toCollection(LinkedList::new))
-                .descendingIterator();
-
-            while (enabled.hasNext()) {
-                final IResourcePack rp = enabled.next();
-                try {
-                    if (rp.resourceExists(ResourcePackType.CLIENT_RESOURCES, asRL)) {
-                        return full(rp.getResourceStream(ResourcePackType.CLIENT_RESOURCES, asRL));
-                    }
-                } catch (IOException | NullPointerException ignored) {}
+            final Optional<InputStream> is = getPackIndex().open(PathTools.getResourceLocation(path));
+            if (is.isPresent()) {
+                return is;
             }
         }
         return getResource(path);
@@ -173,29 +317,28 @@ public class SpriteHandler {
      * generating too many open InputStreams at once
      */
     private static boolean resourceExists(String path) {
-        final Optional<InputStream> resource = locateResource(path);
-        resource.ifPresent(is -> {
-            try {
-                is.close();
-            } catch (IOException e) {
-                throw runEx("Unable to close temporary resource", e);
-            }
-        });
-        return resource.isPresent();
+        if (Cfg.overlaysFromRp.get() && getPackIndex().exists(PathTools.getResourceLocation(path))) {
+            return true;
+        }
+        return SafeFileIO.resourceExists(path);
     }
 
-    private static Optional<Color[][]> loadColors(String path) {
-        return loadImage(path).map(ImageTools::getColors);
+    /** Retrieves the index of the enabled resource packs, creating it if necessary. */
+    private static ResourcePackIndex getPackIndex() {
+        ResourcePackIndex index = packIndex;
+        if (index == null) {
+            synchronized (PACK_LOCK) {
+                index = packIndex;
+                if (index == null) {
+                    packIndex = index = ResourcePackIndex.create(getEnabledPacks().collect(Collectors.toList()));
+                }
+            }
+        }
+        return index;
     }
 
-    /** Returns a clone of the input color matrix. */
-    private static Color[][] cloneColors(Color[][] colors) {
-        final int w = colors.length, h = colors[0].length;
-        final Color[][] newColors = new Color[w][h];
-        for (int x = 0; x < w; x++) {
-            System.arraycopy(colors[x], 0, newColors[x], 0, h);
-        }
-        return newColors;
+    private static Optional<ArgbImage> loadColors(String path) {
+        return loadImage(path).map(ImageTools::getColors);
     }
 
     /** Reuses any original .mcmeta files for all overlay variants. */
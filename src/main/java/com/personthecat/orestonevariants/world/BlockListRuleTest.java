@@ -2,7 +2,7 @@ package com.personthecat.orestonevariants.world;
 
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
-import lombok.AllArgsConstructor;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.util.registry.Registry;
@@ -16,10 +16,10 @@ import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import static com.personthecat.orestonevariants.util.CommonMethods.getGuaranteedState;
 
-@AllArgsConstructor
 @ParametersAreNonnullByDefault
 public class BlockListRuleTest extends RuleTest {
 
@@ -32,6 +32,14 @@ public class BlockListRuleTest extends RuleTest {
 
     private final List<BlockState> blocks;
 
+    /** Block states are unique instances, so an identity set avoids scanning the list. */
+    private final Set<BlockState> lookup;
+
+    public BlockListRuleTest(List<BlockState> blocks) {
+        this.blocks = blocks;
+        this.lookup = new ReferenceOpenHashSet<>(blocks);
+    }
+
     public static BlockListRuleTest from(JsonArray array) {
         final List<BlockState> states = new ArrayList<>();
         for (JsonValue value : array) {
@@ -45,7 +53,12 @@ public class BlockListRuleTest extends RuleTest {
 
     @Override
     public boolean test(BlockState state, Random rand) {
-        return blocks.contains(state);
+        return lookup.contains(state);
+    }
+
+    /** Variant of {@link #test} which does not require a random. */
+    public boolean contains(BlockState state) {
+        return lookup.contains(state);
     }
 
     @NotNull
@@ -0,0 +1,296 @@
+package com.personthecat.orestonevariants.world;
+
+import com.mojang.datafixers.util.Either;
+import com.personthecat.orestonevariants.util.unsafe.ReflectionTools;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.IChunk;
+import net.minecraft.world.gen.GenerationStage;
+import net.minecraft.world.server.ChunkHolder;
+import net.minecraft.world.server.ServerChunkProvider;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraft.world.server.TicketType;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static com.personthecat.orestonevariants.util.CommonMethods.f;
+
+/**
+ *  Generates every chunk in a square region up to the features stage. Chunks are scheduled from
+ * the server thread by adding a ticket for each one and requesting its future from the chunk
+ * manager, which generates them on the world generation executor. A small pool of worker
+ * threads only waits on those futures, releasing each ticket and scheduling more chunks as they
+ * complete. This keeps a fixed number of chunks in flight without blocking the server thread.
+ *
+ *  The number of chunks in flight is the only thing which can be controlled here. How many
+ * threads actually generate chunks is decided by the game's world generation executor.
+ *
+ *  Ore variant features are profiled for the duration of the task, so that the time spent on
+ * them in each generation stage can be reported when it finishes.
+ */
+@Log4j2
+public class ChunkPregenerator {
+
+    /** The task currently running, if any. Only one task may run at a time. */
+    private static final AtomicReference<ChunkPregenerator> RUNNING = new AtomicReference<>();
+
+    /** The number of progress reports to send before the task completes. */
+    private static final int NUM_REPORTS = 10;
+
+    /** The number of features to display in the final report. */
+    private static final int NUM_FEATURES = 5;
+
+    /** The number of chunks in flight for each worker waiting on them. */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** The default number of chunks in flight, which keeps every core busy. */
+    public static final int DEFAULT_WINDOW = CHUNKS_PER_WORKER * Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /** How long workers wait for a new chunk before checking whether the task is finished. */
+    private static final long POLL_MILLIS = 50;
+
+    /** Keeps each chunk loaded until the pregenerator is finished with it. */
+    private static final TicketType<ChunkPos> TICKET =
+        TicketType.create("osv_pregen", Comparator.comparingLong(ChunkPos::asLong));
+
+    /** The ticket distance which loads a chunk up to the features stage, but no further. */
+    private static final int TICKET_DISTANCE = -ChunkStatus.getDistance(ChunkStatus.FEATURES);
+
+    /**
+     * getChunkFutureMainThread: applies any pending ticket updates and returns the chunk
+     * manager's future for this chunk. Must be called on the server thread.
+     */
+    private static final Method GET_CHUNK_FUTURE = ReflectionTools.getMethod(ServerChunkProvider.class,
+        "func_217233_c", int.class, int.class, ChunkStatus.class, boolean.class);
+
+    private final ServerWorld world;
+    private final ChunkPos center;
+    private final int radius;
+    private final int side;
+    private final int total;
+    private final int window;
+    private final int workers;
+    private final Consumer<String> feedback;
+    private final BlockingQueue<Pending> pending = new LinkedBlockingQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile boolean scheduled = false;
+    private long startTime;
+
+    /** The index of the next chunk to schedule. Only accessed on the server thread. */
+    private int next = 0;
+
+    private ChunkPregenerator(ServerWorld world, ChunkPos center, int radius, int window, Consumer<String> feedback) {
+        this.world = world;
+        this.center = center;
+        this.radius = radius;
+        this.side = radius * 2 + 1;
+        this.total = side * side;
+        this.window = window;
+        this.workers = (window + CHUNKS_PER_WORKER - 1) / CHUNKS_PER_WORKER;
+        this.feedback = feedback;
+    }
+
+    /**
+     * Begins generating chunks in the background.
+     *
+     * @param world The world in which to generate chunks.
+     * @param center The chunk at the center of the region.
+     * @param radius The number of chunks in each direction from the center.
+     * @param window The maximum number of chunks requested from the chunk manager at once. This
+     *               does not control how many threads generate them.
+     * @param feedback Receives progress messages. Always called on the server thread.
+     * @return <code>false</code>, if another task is already running.
+     * @implNote Must be called on the server thread.
+     */
+    public static boolean start(ServerWorld world, ChunkPos center, int radius, int window, Consumer<String> feedback) {
+        final ChunkPregenerator task = new ChunkPregenerator(world, center, radius, window, feedback);
+        if (!RUNNING.compareAndSet(null, task)) {
+            return false;
+        }
+        task.run();
+        return true;
+    }
+
+    /**
+     * Stops the current task, if any. Chunks which are already being generated will finish.
+     *
+     * @return <code>false</code>, if no task was running.
+     */
+    public static boolean stop() {
+        final ChunkPregenerator task = RUNNING.get();
+        if (task == null) {
+            return false;
+        }
+        task.cancelled = true;
+        return true;
+    }
+
+    private void run() {
+        final ExecutorService executor = Executors.newFixedThreadPool(workers, createThreadFactory());
+        final List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+        log.info("Pregenerating {} chunks around {}, {} at a time.", total, center, window);
+        FeatureProfiler.start();
+        startTime = System.nanoTime();
+
+        schedule();
+        for (int i = 0; i < workers; i++) {
+            workers.add(CompletableFuture.runAsync(this::work, executor));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+            FeatureProfiler.stop();
+            executor.shutdown();
+            RUNNING.set(null);
+            if (e != null) {
+                log.error("Error pregenerating chunks", e);
+                send(f("Pregen stopped with an error: {}", e.getMessage()));
+            }
+            report();
+        });
+    }
+
+    /**
+     * Adds a ticket for each chunk and requests its future until the window is full. Runs on
+     * the server thread, as chunk tickets and futures may not be accessed from anywhere else.
+     */
+    private void schedule() {
+        final ServerChunkProvider provider = world.getChunkProvider();
+        while (!cancelled && world.getServer().isServerRunning() && next < total && inFlight.get() < window) {
+            final int i = next++;
+            final ChunkPos pos = new ChunkPos(center.x + i % side - radius, center.z + i / side - radius);
+            provider.registerTicket(TICKET, pos, TICKET_DISTANCE, pos);
+            final CompletableFuture<Either<IChunk, ChunkHolder.IChunkLoadingError>> future =
+                ReflectionTools.get(GET_CHUNK_FUTURE, provider, pos.x, pos.z, ChunkStatus.FEATURES, true);
+            inFlight.incrementAndGet();
+            pending.add(new Pending(pos, future));
+        }
+        if (cancelled || next >= total || !world.getServer().isServerRunning()) {
+            scheduled = true;
+        }
+    }
+
+    /**
+     * Waits on chunks from the shared queue until every chunk has been scheduled and completed.
+     * Each completed chunk has its ticket released and frees a slot for the next one.
+     */
+    private void work() {
+        final MinecraftServer server = world.getServer();
+        while (true) {
+            final Pending chunk;
+            try {
+                chunk = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignored) {
+                return;
+            }
+            if (chunk == null) {
+                if (scheduled || cancelled || !server.isServerRunning()) {
+                    return;
+                }
+                continue;
+            }
+            final Either<IChunk, ChunkHolder.IChunkLoadingError> result = chunk.future.join();
+            inFlight.decrementAndGet();
+            server.execute(() -> {
+                world.getChunkProvider().releaseTicket(TICKET, chunk.pos, TICKET_DISTANCE, chunk.pos);
+                schedule();
+            });
+            if (result.right().isPresent()) {
+                failed.incrementAndGet();
+                log.warn("Unable to generate chunk {}: {}", chunk.pos, result.right().get());
+                continue;
+            }
+            final int done = completed.incrementAndGet();
+            if (done < total && done % Math.max(1, total / NUM_REPORTS) == 0) {
+                send(f("Generated {} / {} chunks ({} chunks/s).", done, total, format(getRate(done))));
+            }
+        }
+    }
+
+    /** Sends the final results to the user and the log. */
+    private void report() {
+        final int done = completed.get();
+        final double seconds = (System.nanoTime() - startTime) / 1E9;
+        send(f("Pregenerated {} / {} chunks in {}s ({} chunks/s).", done, total, format(seconds), format(getRate(done))));
+        if (failed.get() > 0) {
+            send(f("{} chunks could not be generated. See the log for details.", failed.get()));
+        }
+
+        final List<FeatureProfiler.Snapshot> snapshots = FeatureProfiler.snapshot();
+        final Map<GenerationStage.Decoration, long[]> stages = new EnumMap<>(GenerationStage.Decoration.class);
+        long nanos = 0;
+        long calls = 0;
+        long blocks = 0;
+        for (FeatureProfiler.Snapshot snapshot : snapshots) {
+            nanos += snapshot.nanos;
+            calls += snapshot.calls;
+            blocks += snapshot.blocks;
+            if (snapshot.stage != null) {
+                final long[] stage = stages.computeIfAbsent(snapshot.stage, s -> new long[3]);
+                stage[0] += snapshot.nanos;
+                stage[1] += snapshot.calls;
+                stage[2] += snapshot.blocks;
+            }
+        }
+        send(f("Ore variants: {} ms in {} clusters, {} blocks placed.", format(nanos / 1E6), calls, blocks));
+        stages.forEach((stage, totals) ->
+            send(f(" {}: {} ms in {} clusters, {} blocks", stage, format(totals[0] / 1E6), totals[1], totals[2])));
+        for (int i = 0; i < snapshots.size(); i++) {
+            final FeatureProfiler.Snapshot s = snapshots.get(i);
+            final String line = f(" - {} ({}): {} ms in {} clusters, {} blocks", s.name, s.stage, format(s.nanos / 1E6), s.calls, s.blocks);
+            if (i < NUM_FEATURES) {
+                send(line);
+            }
+            log.info(line);
+        }
+    }
+
+    private double getRate(int done) {
+        return done / Math.max(1E-9, (System.nanoTime() - startTime) / 1E9);
+    }
+
+    /** Forwards a message to the user on the server thread. */
+    private void send(String msg) {
+        world.getServer().execute(() -> feedback.accept(msg));
+    }
+
+    private static String format(double d) {
+        return String.format("%.2f", d);
+    }
+
+    /** A chunk which has been scheduled, along with the future for its features stage. */
+    @AllArgsConstructor
+    private static class Pending {
+        final ChunkPos pos;
+        final CompletableFuture<Either<IChunk, ChunkHolder.IChunkLoadingError>> future;
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            final Thread thread = new Thread(r, "OSV Pregen Worker #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package com.personthecat.orestonevariants.world;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import net.minecraft.world.gen.GenerationStage;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Records the time spent spawning each type of ore variant. Each feature config resolves its
+ * {@link Target} once when it is created, so recording a call never looks anything up. Each
+ * generator thread writes into its own cells, so this is safe to leave enabled while chunks are
+ * being generated in parallel. When disabled, the only cost to world generation is a single
+ * volatile read per feature.
+ *
+ *  Measurements are grouped by the generation stage each feature was registered in, so that
+ * ores spawning in different stages, e.g. underground ores and vegetal decoration, can be
+ * compared separately.
+ */
+public class FeatureProfiler {
+
+    /** Whether features should currently be measured. */
+    private static volatile boolean enabled = false;
+
+    /** The measurements taken for each ore type, by stage and name. */
+    private static final Map<Key, Target> TARGETS = new ConcurrentHashMap<>();
+
+    /** Clears any previous measurements and begins recording. */
+    public static void start() {
+        TARGETS.values().forEach(Target::reset);
+        enabled = true;
+    }
+
+    /** Stops recording. Measurements are kept until the next call to {@link #start}. */
+    public static void stop() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Locates the measurements for a single ore type in a single stage, creating them if
+     * necessary. This should only be called when a feature is configured.
+     *
+     * @param stage The stage in which the feature will be generated, or null if unknown.
+     * @param name The name of the ore type being spawned.
+     */
+    public static Target getTarget(@Nullable GenerationStage.Decoration stage, String name) {
+        return TARGETS.computeIfAbsent(new Key(stage, name), k -> new Target());
+    }
+
+    /** Records a single call to a feature spawning the given type of ore. */
+    public static void record(Target target, long nanos, int blocks) {
+        target.nanos.add(nanos);
+        target.calls.increment();
+        target.blocks.add(blocks);
+    }
+
+    /** Returns an immutable copy of every measurement, sorted by time spent, descending. */
+    public static List<Snapshot> snapshot() {
+        final List<Snapshot> snapshots = new ArrayList<>();
+        TARGETS.forEach((key, target) -> {
+            final long calls = target.calls.sum();
+            if (calls > 0) {
+                snapshots.add(new Snapshot(key.stage, key.name, target.nanos.sum(), calls, target.blocks.sum()));
+            }
+        });
+        snapshots.sort(Comparator.comparingLong((Snapshot s) -> s.nanos).reversed());
+        return snapshots;
+    }
+
+    /** Identifies a single ore type in a single stage. The stage is null if it was never set. */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+        final GenerationStage.Decoration stage;
+        final String name;
+    }
+
+    /** The mutable counters for a single ore type in a single stage. */
+    public static class Target {
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder blocks = new LongAdder();
+
+        private Target() {}
+
+        private void reset() {
+            nanos.reset();
+            calls.reset();
+            blocks.reset();
+        }
+    }
+
+    /** The measurements for a single ore type at the time of {@link #snapshot}. */
+    @AllArgsConstructor
+    public static class Snapshot {
+        public final GenerationStage.Decoration stage;
+        public final String name;
+        public final long nanos;
+        public final long calls;
+        public final long blocks;
+    }
+}
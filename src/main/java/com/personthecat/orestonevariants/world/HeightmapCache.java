@@ -0,0 +1,132 @@
+package com.personthecat.orestonevariants.world;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.ISeedReader;
+import net.minecraft.world.gen.Heightmap;
+
+import java.lang.ref.WeakReference;
+
+/**
+ *  Caches the range of ocean floor heights in each chunk of the region currently being decorated.
+ * This allows features to determine whether a cluster is underground without sampling every
+ * column it covers.
+ *
+ *  Each thread keeps a cache for the most recent region it has seen. Because this region is only
+ * ever decorated by a single thread, the cache is never shared and is simply replaced whenever a
+ * new region is used. Positive results are confirmed against the live heightmap. Negative results
+ * use the heights as they were first sampled in this region, which is accurate as long as no
+ * blocks have been stacked above the surface by other features since.
+ */
+public class HeightmapCache {
+
+    /** The cache for the region being decorated on the current thread, if any. */
+    private static final ThreadLocal<HeightmapCache> CACHE = new ThreadLocal<>();
+
+    /** The type of heightmap being cached. */
+    private static final Heightmap.Type TYPE = Heightmap.Type.OCEAN_FLOOR_WG;
+
+    /** Indicates that a chunk has not been sampled yet. */
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    /** The region this cache was created for. Weak so that finished regions can be collected. */
+    private final WeakReference<ISeedReader> world;
+
+    /** The minimum height of each chunk in the upper 32 bits and the maximum in the lower. */
+    private final Long2LongMap ranges = new Long2LongOpenHashMap();
+
+    private HeightmapCache(ISeedReader world) {
+        this.world = new WeakReference<>(world);
+        this.ranges.defaultReturnValue(UNKNOWN);
+    }
+
+    /** Retrieves the cache for the given region, creating it if this is a new region. */
+    public static HeightmapCache get(ISeedReader world) {
+        final HeightmapCache cache = CACHE.get();
+        if (cache != null && cache.world.get() == world) {
+            return cache;
+        }
+        final HeightmapCache created = new HeightmapCache(world);
+        CACHE.set(created);
+        return created;
+    }
+
+    /**
+     * Determines whether any column in the given area has an ocean floor at or above <code>y</code>.
+     * This is equivalent to testing every column individually.
+     *
+     * @param world The region currently being decorated.
+     * @param y The height being tested.
+     * @param minX The minimum x coordinate, inclusive.
+     * @param minZ The minimum z coordinate, inclusive.
+     * @param maxX The maximum x coordinate, inclusive.
+     * @param maxZ The maximum z coordinate, inclusive.
+     * @return <code>true</code>, if <code>y</code> is below the surface in any column.
+     */
+    public boolean isBelowSurface(ISeedReader world, int y, int minX, int minZ, int maxX, int maxZ) {
+        boolean possible = false;
+        for (int cX = minX >> 4; cX <= maxX >> 4; cX++) {
+            for (int cZ = minZ >> 4; cZ <= maxZ >> 4; cZ++) {
+                final long range = getRange(world, cX, cZ);
+                if (y <= (int) (range >> 32)) {
+                    // Every column in this chunk is high enough. Confirm with a single sample.
+                    final int x = Math.max(minX, cX << 4);
+                    final int z = Math.max(minZ, cZ << 4);
+                    if (y <= world.getHeight(TYPE, x, z)) {
+                        return true;
+                    }
+                    possible = true;
+                } else if (y <= (int) range) {
+                    possible = true;
+                }
+            }
+        }
+        return possible && scan(world, y, minX, minZ, maxX, maxZ);
+    }
+
+    /** Tests every column in the area, exactly as features did before this cache existed. */
+    private static boolean scan(ISeedReader world, int y, int minX, int minZ, int maxX, int maxZ) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                if (y <= world.getHeight(TYPE, x, z)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Samples the heights of every column in a chunk, if they have not been sampled already.
+     * This allows a batch of features to share a single pass over the heightmap.
+     *
+     * @param world The region currently being decorated.
+     * @param cX The x coordinate of the chunk.
+     * @param cZ The z coordinate of the chunk.
+     */
+    public void sample(ISeedReader world, int cX, int cZ) {
+        getRange(world, cX, cZ);
+    }
+
+    /** Retrieves the minimum and maximum height in the given chunk, sampling it if necessary. */
+    private long getRange(ISeedReader world, int cX, int cZ) {
+        final long key = ChunkPos.asLong(cX, cZ);
+        final long cached = ranges.get(key);
+        if (cached != UNKNOWN) {
+            return cached;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int x = cX << 4; x < (cX << 4) + 16; x++) {
+            for (int z = cZ << 4; z < (cZ << 4) + 16; z++) {
+                final int height = world.getHeight(TYPE, x, z);
+                min = Math.min(min, height);
+                max = Math.max(max, height);
+            }
+        }
+        final long range = ((long) min << 32) | ((long) max & 0xFFFFFFFFL);
+        ranges.put(key, range);
+        return range;
+    }
+}
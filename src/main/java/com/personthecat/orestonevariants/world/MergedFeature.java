@@ -0,0 +1,51 @@
+package com.personthecat.orestonevariants.world;
+
+import com.mojang.serialization.Codec;
+import net.minecraft.util.SharedSeedRandom;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ISeedReader;
+import net.minecraft.world.gen.ChunkGenerator;
+import net.minecraft.world.gen.feature.ConfiguredFeature;
+import net.minecraft.world.gen.feature.Feature;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ *  A composite feature which spawns every OSV generator in a single generation stage at once.
+ * This allows all of the ore and stone generators in a biome to be dispatched by the chunk
+ * generator as a single feature.
+ *
+ *  Each sub-feature is reseeded exactly as it would be if registered on its own at the next
+ * consecutive index. The index of this feature is recorded in its config when the biome is
+ * loaded. The heightmap of the chunk being decorated is sampled once, up front, and is shared
+ * by every sub-feature through the {@link HeightmapCache}.
+ */
+@ParametersAreNonnullByDefault
+public class MergedFeature extends Feature<MergedFeatureConfig> {
+
+    public static final MergedFeature INSTANCE = new MergedFeature(MergedFeatureConfig.CODEC);
+
+    private MergedFeature(Codec<MergedFeatureConfig> config) {
+        super(config);
+        setRegistryName("osv:merged_feature");
+    }
+
+    @Override
+    public boolean generate(ISeedReader world, ChunkGenerator generator, Random rand, BlockPos pos, MergedFeatureConfig config) {
+        final SharedSeedRandom seeded = new SharedSeedRandom();
+        final long decorationSeed = seeded.setDecorationSeed(world.getSeed(), pos.getX(), pos.getZ());
+        final int step = config.stage.ordinal();
+        final List<Supplier<ConfiguredFeature<?, ?>>> features = config.features;
+        HeightmapCache.get(world).sample(world, pos.getX() >> 4, pos.getZ() >> 4);
+
+        boolean placed = false;
+        for (int i = 0; i < features.size(); i++) {
+            seeded.setFeatureSeed(decorationSeed, config.index + i, step);
+            placed |= features.get(i).get().func_242765_a(world, generator, seeded, pos);
+        }
+        return placed;
+    }
+}
@@ -0,0 +1,47 @@
+package com.personthecat.orestonevariants.world;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.world.gen.GenerationStage;
+import net.minecraft.world.gen.feature.ConfiguredFeature;
+import net.minecraft.world.gen.feature.IFeatureConfig;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class MergedFeatureConfig implements IFeatureConfig {
+
+    /** Required so that MFC may be serialized internally via vanilla functions. */
+    public static final Codec<MergedFeatureConfig> CODEC = RecordCodecBuilder.create(instance ->
+        instance.group(
+            Codec.STRING.xmap(GenerationStage.Decoration::valueOf, GenerationStage.Decoration::name)
+                .fieldOf("stage").forGetter(config -> config.stage),
+            Codec.INT.fieldOf("index").forGetter(config -> config.index),
+            ConfiguredFeature.field_236264_b_.listOf().fieldOf("features").forGetter(config -> config.features))
+        .apply(instance, MergedFeatureConfig::new)
+    );
+
+    /** The generation stage in which every feature in this config is spawned. */
+    public final GenerationStage.Decoration stage;
+
+    /**
+     * The index at which the chunk generator spawns this feature in its stage, counting any
+     * structures first. Used to reproduce the seed each feature would receive on its own.
+     */
+    public final int index;
+
+    /** Every feature to spawn in this stage, in the order they would otherwise be registered. */
+    public final List<Supplier<ConfiguredFeature<?, ?>>> features;
+
+    public MergedFeatureConfig(GenerationStage.Decoration stage, int index, List<Supplier<ConfiguredFeature<?, ?>>> features) {
+        this.stage = stage;
+        this.index = index;
+        this.features = features;
+    }
+
+    @Override
+    public Stream<ConfiguredFeature<?, ?>> func_241856_an_() {
+        return features.stream().flatMap(feature -> feature.get().func_242768_d());
+    }
+}
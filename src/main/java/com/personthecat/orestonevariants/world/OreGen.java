@@ -15,6 +15,7 @@ import net.minecraft.util.registry.WorldGenRegistries;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.gen.GenerationStage;
 import net.minecraft.world.gen.feature.*;
+import net.minecraft.world.gen.feature.structure.Structure;
 import net.minecraft.world.gen.feature.template.RuleTest;
 import net.minecraft.world.gen.placement.Placement;
 import net.minecraftforge.common.world.BiomeGenerationSettingsBuilder;
@@ -40,6 +41,12 @@ public class OreGen {
     /** A cleaner reference to VariantFeature#INSTANCE. */
     private static final Feature<VariantFeatureConfig> VARIANT_FEATURE = VariantFeature.INSTANCE;
 
+    /** A cleaner reference to StoneFeature#INSTANCE. */
+    private static final Feature<OreFeatureConfig> STONE_FEATURE = StoneFeature.INSTANCE;
+
+    /** A cleaner reference to MergedFeature#INSTANCE. */
+    private static final Feature<MergedFeatureConfig> MERGED_FEATURE = MergedFeature.INSTANCE;
+
     /** A cleaner reference to VariantPlacement#INSTANCE. */
     private static final Placement<VariantPlacementConfig> VARIANT_PLACEMENT = VariantPlacement.INSTANCE;
 
@@ -66,12 +73,15 @@ public class OreGen {
             disableGenerators(ores, event.getName());
             disableGenerators(decorations, event.getName());
         }
+        final Map<GenerationStage.Decoration, List<Supplier<ConfiguredFeature<?, ?>>>> features =
+            new EnumMap<>(GenerationStage.Decoration.class);
         if (Cfg.enableOSVStone.get()) {
-            registerStoneGenerators(generation, event.getName());
+            registerStoneGenerators(features, event.getName());
         }
         if (Cfg.enableOSVOres.get()) {
-            registerVariantGenerators(generation, event.getName());
+            registerVariantGenerators(features, event.getName());
         }
+        addFeatures(generation, features);
     }
 
     /** Allows world generation settings to be dynamically reloaded when the world is restarted. */
@@ -79,6 +89,7 @@ public class OreGen {
         ENABLED_ORES.reset();
         ENABLED_STONE.reset();
         NESTED_TYPES.reset();
+        VariantFeature.onWorldClosed();
     }
 
     /** Generates a set containing all of the ores that we have variants of. */
@@ -171,14 +182,14 @@ public class OreGen {
     }
 
     /** Generates and registers all ore decorators with the appropriate biomes. */
-    private static void registerVariantGenerators(BiomeGenerationSettingsBuilder generation, ResourceLocation name) {
+    private static void registerVariantGenerators(Map<GenerationStage.Decoration, List<Supplier<ConfiguredFeature<?, ?>>>> features, ResourceLocation name) {
         forEnabledProps((props, gen) -> {
             final List<NestedType> nested = NESTED_TYPES.get(gen);
             final VariantPlacementConfig placementConfig = new VariantPlacementConfig(gen.count, gen.height, gen.chance);
-            final VariantFeatureConfig featureConfig = new VariantFeatureConfig(props, gen.size, gen.denseRatio, nested);
+            final VariantFeatureConfig featureConfig = new VariantFeatureConfig(props, gen.size, gen.denseRatio, nested, gen.stage);
             final ConfiguredFeature<?, ?> configured = createFeature(featureConfig, placementConfig);
             if (gen.biomes.get().check(Biome::getRegistryName, name)) {
-                nullable(generation.getFeatures(gen.stage)).ifPresent(f -> f.add(() -> configured));
+                features.computeIfAbsent(gen.stage, s -> new ArrayList<>()).add(() -> configured);
             }
         });
     }
@@ -193,14 +204,14 @@ public class OreGen {
     }
 
     /** Generates and registers all stone decorators with the appropriate biomes. */
-    private static void registerStoneGenerators(BiomeGenerationSettingsBuilder generation, ResourceLocation name) {
+    private static void registerStoneGenerators(Map<GenerationStage.Decoration, List<Supplier<ConfiguredFeature<?, ?>>>> features, ResourceLocation name) {
         forEnabledStone((block, rule, gen) -> {
             VariantPlacementConfig placementConfig = new VariantPlacementConfig(gen.count, gen.height, gen.chance);
-            OreFeatureConfig stoneConfig = new OreFeatureConfig(rule, block, gen.size);
+            final GenerationStage.Decoration stage = checkDefer(gen.stage);
+            OreFeatureConfig stoneConfig = new StoneFeatureConfig(rule, block, gen.size, stage);
             final ConfiguredFeature<?, ?> configured = createFeature(stoneConfig, placementConfig);
             if (gen.biomes.get().check(Biome::getRegistryName, name)) {
-                final GenerationStage.Decoration stage = checkDefer(gen.stage);
-                nullable(generation.getFeatures(stage)).ifPresent(f -> f.add(() -> configured));
+                features.computeIfAbsent(stage, s -> new ArrayList<>()).add(() -> configured);
             }
         });
     }
@@ -214,6 +225,38 @@ public class OreGen {
         }
     }
 
+    /**
+     * Adds every generator to the biome in order. If generators are being merged, each stage
+     * will instead receive a single feature containing all of its generators.
+     */
+    private static void addFeatures(BiomeGenerationSettingsBuilder generation, Map<GenerationStage.Decoration, List<Supplier<ConfiguredFeature<?, ?>>>> features) {
+        features.forEach((stage, list) -> nullable(generation.getFeatures(stage)).ifPresent(f -> {
+            if (Cfg.mergeGenerators.get()) {
+                final int index = countStructures(stage) + f.size();
+                final MergedFeatureConfig config = new MergedFeatureConfig(stage, index, list);
+                final ConfiguredFeature<?, ?> merged = registerRandomly(MERGED_FEATURE.withConfiguration(config));
+                f.add(() -> merged);
+            } else {
+                f.addAll(list);
+            }
+        }));
+    }
+
+    /**
+     * Counts the structures which the chunk generator spawns before any features in this stage.
+     * This assumes that structures are enabled, as they are by default. Otherwise, every merged
+     * feature is offset by this amount.
+     */
+    private static int countStructures(GenerationStage.Decoration stage) {
+        int count = 0;
+        for (Structure<?> structure : Registry.STRUCTURE_FEATURE) {
+            if (structure.getDecorationStage() == stage) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /** Generates and registers a new ConfiguredFeature for ore variants. */
     private static ConfiguredFeature<?, ?> createFeature(VariantFeatureConfig featureConfig, VariantPlacementConfig placementConfig) {
         final ConfiguredFeature<?, ?> feature = VARIANT_FEATURE.withConfiguration(featureConfig)
@@ -223,7 +266,7 @@ public class OreGen {
 
     /** Generates and registers a new ConfiguredFeature for stone types. */
     private static ConfiguredFeature<?, ?> createFeature(OreFeatureConfig stoneConfig, VariantPlacementConfig placementConfig) {
-        final ConfiguredFeature<?, ?> feature = Feature.ORE.withConfiguration(stoneConfig)
+        final ConfiguredFeature<?, ?> feature = STONE_FEATURE.withConfiguration(stoneConfig)
             .withPlacement(VARIANT_PLACEMENT.configure(placementConfig));
         return registerRandomly(feature);
     }
@@ -0,0 +1,150 @@
+package com.personthecat.orestonevariants.world;
+
+import com.mojang.serialization.Codec;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.ISeedReader;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.IChunk;
+import net.minecraft.world.gen.ChunkGenerator;
+import net.minecraft.world.gen.feature.Feature;
+import net.minecraft.world.gen.feature.OreFeature;
+import net.minecraft.world.gen.feature.OreFeatureConfig;
+import net.minecraft.world.gen.feature.template.RuleTest;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Random;
+
+import static net.minecraft.util.math.MathHelper.*;
+
+/**
+ *  The class responsible for spawning stone layers. Generates exactly the same shapes as
+ * {@link OreFeature}, but shares the optimized geometry used by {@link VariantFeature}.
+ *
+ *  When the source blocks are a {@link BlockListRuleTest}, every chunk section is first checked
+ * for any matching states in its palette. Sections which cannot contain any source blocks, such
+ * as those filled with air or water, are skipped without reading each block.
+ */
+@ParametersAreNonnullByDefault
+public class StoneFeature extends Feature<OreFeatureConfig> {
+
+    public static final StoneFeature INSTANCE = new StoneFeature(OreFeatureConfig.CODEC);
+
+    /** The background state of any empty chunk section. */
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private StoneFeature(Codec<OreFeatureConfig> config) {
+        super(config);
+        setRegistryName("osv:stone_feature");
+    }
+
+    @Override
+    public boolean generate(ISeedReader world, ChunkGenerator chunk, Random rand, BlockPos pos, OreFeatureConfig config) {
+        if (!FeatureProfiler.isEnabled()) {
+            return spawn(world, rand, pos, config) > 0;
+        }
+        final long start = System.nanoTime();
+        final int count = spawn(world, rand, pos, config);
+        FeatureProfiler.record(getProfile(config), System.nanoTime() - start, count);
+        return count > 0;
+    }
+
+    /** Locates the profiler target for this config, which is only known in advance for our own configs. */
+    private static FeatureProfiler.Target getProfile(OreFeatureConfig config) {
+        if (config instanceof StoneFeatureConfig) {
+            return ((StoneFeatureConfig) config).profile;
+        }
+        return FeatureProfiler.getTarget(null, String.valueOf(config.state.getBlock().getRegistryName()));
+    }
+
+    /**
+     * Attempts to spawn a single cluster at the given position.
+     *
+     * @return The number of blocks that were placed.
+     */
+    private int spawn(ISeedReader world, Random rand, BlockPos pos, OreFeatureConfig config) {
+        float randPI = rand.nextFloat() * (float) Math.PI;
+
+        float sizeA = (float) config.size / 8.0F;
+        int sizeB = ceil(((float) config.size / 16.0F * 2.0F + 1.0F) / 2.0F);
+        double aX = (double) pos.getX() + Math.sin(randPI) * (double) sizeA;
+        double bX = (double) pos.getX() - Math.sin(randPI) * (double) sizeA;
+        double aZ = (double) pos.getZ() + Math.cos(randPI) * (double) sizeA;
+        double bZ = (double) pos.getZ() - Math.cos(randPI) * (double) sizeA;
+        double aY = pos.getY() + rand.nextInt(3) - 2;
+        double bY = pos.getY() + rand.nextInt(3) - 2;
+
+        int startX = pos.getX() - ceil(sizeA) - sizeB;
+        int y = pos.getY() - 2 - sizeB;
+        int startZ = pos.getZ() - ceil(sizeA) - sizeB;
+        int offset = 2 * (ceil(sizeA) + sizeB);
+        int diameter = 2 * (2 + sizeB);
+
+        if (HeightmapCache.get(world).isBelowSurface(world, y, startX, startZ, startX + offset, startZ + offset)) {
+            return doPlace(world, rand, config, aX, bX, aZ, bZ, aY, bY, startX, y, startZ, offset, diameter);
+        }
+        return 0;
+    }
+
+    protected int doPlace(IWorld world, Random rand, OreFeatureConfig config, double aX, double bX, double aZ, double bZ, double aY, double bY, int startX, int startY, int startZ, int offset, int diameter) {
+        final VeinContext ctx = VeinContext.get().reset(config.size, 0);
+        final VeinGeometry.Spheres spheres = VeinGeometry.getVanillaValues(ctx.spheres, rand, config.size, aX, bX, aY, bY, aZ, bZ);
+        final LongList positions = VeinGeometry.rasterize(spheres, config.size, ctx.flags, startX, startY, startZ, offset, diameter, ctx.positions);
+        final RuleTest target = config.target;
+        final BlockListRuleTest list = target instanceof BlockListRuleTest ? (BlockListRuleTest) target : null;
+        final BlockPos.Mutable pos = ctx.pos;
+        IChunk chunk = null;
+        long chunkPos = 0L;
+        int count = 0;
+
+        for (int i = 0; i < positions.size(); i++) {
+            final long packed = positions.getLong(i);
+            final int x = BlockPos.unpackX(packed);
+            final int y = BlockPos.unpackY(packed);
+            final int z = BlockPos.unpackZ(packed);
+            pos.setPos(x, y, z);
+
+            BlockState bg = null;
+            if (y >= 0 && y < 256) {
+                final long currentPos = ChunkPos.asLong(x >> 4, z >> 4);
+                if (chunk == null || currentPos != chunkPos) {
+                    chunk = world.getChunk(x >> 4, z >> 4);
+                    chunkPos = currentPos;
+                }
+                if (chunk instanceof ChunkPrimer) {
+                    final ChunkSection section = chunk.getSections()[y >> 4];
+                    if (ChunkSection.isEmpty(section)) {
+                        bg = AIR;
+                    } else if (list != null && !mayContain(ctx, section, list)) {
+                        continue; // Block list tests do not consume random values.
+                    } else {
+                        bg = section.getBlockState(x & 15, y & 15, z & 15);
+                    }
+                }
+            }
+            if (bg == null) {
+                bg = world.getBlockState(pos);
+            }
+            if (target.test(bg, rand)) {
+                world.setBlockState(pos, config.state, 2);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Determines whether any state in the section's palette is in the block list. */
+    private static boolean mayContain(VeinContext ctx, ChunkSection section, BlockListRuleTest list) {
+        if (ctx.sections.containsKey(section)) {
+            return ctx.sections.getBoolean(section);
+        }
+        final boolean result = section.isValidPOIState(list::contains);
+        ctx.sections.put(section, result);
+        return result;
+    }
+}
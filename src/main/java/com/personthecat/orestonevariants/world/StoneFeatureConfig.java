@@ -0,0 +1,22 @@
+package com.personthecat.orestonevariants.world;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.world.gen.GenerationStage;
+import net.minecraft.world.gen.feature.OreFeatureConfig;
+import net.minecraft.world.gen.feature.template.RuleTest;
+
+/**
+ *  The config used by {@link StoneFeature} when it is registered by this mod. Identical to
+ * {@link OreFeatureConfig}, except that it knows which stage it will be generated in, so that
+ * the feature can be profiled without looking the stage up on every call.
+ */
+public class StoneFeatureConfig extends OreFeatureConfig {
+
+    /** Where time spent generating this feature is recorded, resolved once per config. */
+    public final FeatureProfiler.Target profile;
+
+    public StoneFeatureConfig(RuleTest target, BlockState state, int size, GenerationStage.Decoration stage) {
+        super(target, state, size);
+        this.profile = FeatureProfiler.getTarget(stage, String.valueOf(state.getBlock().getRegistryName()));
+    }
+}
@@ -11,7 +11,6 @@ import net.minecraft.world.ITickList;
 import net.minecraft.world.NextTickListEntry;
 import net.minecraft.world.TickPriority;
 import net.minecraft.world.server.ServerTickList;
-import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.registries.ForgeRegistryEntry;
 
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -22,17 +21,36 @@ import java.util.List;
 @MethodsReturnNonnullByDefault
 public class TickInterceptor extends ServerTickList<Block> {
 
+    /** Indicates that ticks should be intercepted at any position. */
+    private static final long ANY_POS = Long.MIN_VALUE;
+
     private ITickList<Block> wrapped;
-    private Block from;
-    private Block to;
-    private BlockPos pos;
 
-    public TickInterceptor(ServerWorld world) {
-        super(world, b -> true, ForgeRegistryEntry::getRegistryName, t -> {});
+    /** The same list as {@link #wrapped}, if it is a server tick list. */
+    private ServerTickList<Block> serverTicks;
+
+    private Block from = Blocks.AIR;
+    private Block to = Blocks.AIR;
+    private long pos = ANY_POS;
+
+    /**
+     * Constructs an interceptor which is not bound to any world. Every method which would use
+     * the world is overridden and forwarded to the wrapped tick list instead, which means that a
+     * single interceptor can be reused for every world primed in a given thread.
+     */
+    public TickInterceptor() {
+        super(null, b -> true, ForgeRegistryEntry::getRegistryName, t -> {});
     }
 
+    /**
+     * Binds this interceptor to the tick list of a new world. This only needs to happen when
+     * the world being intercepted changes, not every time the interceptor is primed. The server
+     * tick list, if any, is resolved here so that forwarded methods do not need to check its
+     * type on every call.
+     */
     void wrapping(ITickList<Block> ticks) {
         this.wrapped = ticks;
+        this.serverTicks = ticks instanceof ServerTickList ? (ServerTickList<Block>) ticks : null;
     }
 
     void listenFor(Block from, Block to) {
@@ -41,40 +59,46 @@ public class TickInterceptor extends ServerTickList<Block> {
     }
 
     void onlyAt(BlockPos pos) {
-        this.pos = pos;
+        this.pos = pos.toLong();
     }
 
+    /** Stops intercepting any blocks. The tick list remains bound until a new world is wrapped. */
     void reset() {
-        this.wrapped = null;
         this.from = Blocks.AIR;
         this.to = Blocks.AIR;
-        this.pos = null;
+        this.pos = ANY_POS;
+    }
+
+    /** Releases the tick list of the previous world, so that it may be unloaded. */
+    void release() {
+        this.wrapped = null;
+        this.serverTicks = null;
     }
 
-    // Intercept only if this is the correct position or the position is unspecified.
-    private boolean checkPos(BlockPos pos) {
-        return this.pos == null || this.pos == pos;
+    // Intercept only if this is the correct block and position or the position is unspecified.
+    private Block substitute(BlockPos pos, Block block) {
+        if (block == from && (this.pos == ANY_POS || this.pos == pos.toLong())) {
+            return to;
+        }
+        return block;
     }
 
     @Override
     public void tick() {
-        if (wrapped instanceof ServerTickList) {
-            ((ServerTickList<Block>) wrapped).tick();
+        if (serverTicks != null) {
+            serverTicks.tick();
         }
     }
 
     @Override
     public boolean isTickPending(BlockPos pos, Block block) {
-        if (checkPos(pos) && block.equals(from)) {
-            block = to;
-        }
-        return wrapped.isTickPending(pos, block);
+        return wrapped.isTickPending(pos, substitute(pos, block));
     }
 
     @Override
     public List<NextTickListEntry<Block>> getPending(MutableBoundingBox bb, boolean remove, boolean skipCompleted) {
-        if (wrapped instanceof ServerTickList) {
-            return ((ServerTickList<Block>) wrapped).getPending(bb, remove, skipCompleted);
+        if (serverTicks != null) {
+            return serverTicks.getPending(bb, remove, skipCompleted);
         }
         return Collections.emptyList();
     }
@@ -86,37 +110,34 @@ public class TickInterceptor extends ServerTickList<Block> {
 
     @Override
     public void scheduleTick(BlockPos pos, Block block, int scheduledTime, TickPriority priority) {
-        if (checkPos(pos) && block.equals(from)) {
-            block = to;
-        }
-        wrapped.scheduleTick(pos, block, scheduledTime, priority);
+        wrapped.scheduleTick(pos, substitute(pos, block), scheduledTime, priority);
     }
 
     @Override
     public int func_225420_a() {
-        if (wrapped instanceof ServerTickList) {
-            return ((ServerTickList<Block>) wrapped).func_225420_a();
+        if (serverTicks != null) {
+            return serverTicks.func_225420_a();
         }
         return 0;
     }
 
     @Override
     public void copyTicks(MutableBoundingBox area, BlockPos offset) {
-        if (wrapped instanceof ServerTickList) {
-            ((ServerTickList<Block>) wrapped).copyTicks(area, offset);
+        if (serverTicks != null) {
+            serverTicks.copyTicks(area, offset);
         }
     }
 
     @Override
     public ListNBT func_219503_a(ChunkPos chunk) {
-        if (wrapped instanceof ServerTickList) {
-            return ((ServerTickList<Block>) wrapped).func_219503_a(chunk);
+        if (serverTicks != null) {
+            return serverTicks.func_219503_a(chunk);
         }
         return new ListNBT();
     }
 
     @Override
     public String toString() {
-        return "TickInterceptor[" + wrapped.toString() + "]";
+        return "TickInterceptor[" + wrapped + "]";
     }
 }
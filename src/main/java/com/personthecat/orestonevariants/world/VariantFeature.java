@@ -1,24 +1,27 @@
 package com.personthecat.orestonevariants.world;
 
 import com.mojang.serialization.Codec;
-import com.personthecat.orestonevariants.blocks.OreVariant;
 import com.personthecat.orestonevariants.config.Cfg;
 import com.personthecat.orestonevariants.init.LazyRegistries;
 import com.personthecat.orestonevariants.properties.OreProperties;
-import com.personthecat.orestonevariants.util.DualMap;
-import com.personthecat.orestonevariants.util.Lazy;
+import com.personthecat.orestonevariants.util.ResettableLazy;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.ISeedReader;
 import net.minecraft.world.IWorld;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.ChunkPrimerWrapper;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.IChunk;
 import net.minecraft.world.gen.feature.OreFeature;
 import net.minecraft.world.gen.ChunkGenerator;
-import net.minecraft.world.gen.Heightmap;
 import net.minecraft.world.gen.feature.Feature;
 
-import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.BitSet;
 import java.util.Random;
 
 import static net.minecraft.util.math.MathHelper.*;
@@ -32,17 +35,40 @@ public class VariantFeature extends Feature<VariantFeatureConfig> {
 
     public static VariantFeature INSTANCE = new VariantFeature(VariantFeatureConfig.CODEC);
 
-    /** A map containing all of the ores that should be spawned given a background and properties. */
-    private static final Lazy<DualMap<BlockState, OreProperties, BlockState>> FEATURE_MAP =
-        new Lazy<>(VariantFeature::createFeatureMap);
+    /** A table containing all of the ores that should be spawned given a background and properties. */
+    private static final ResettableLazy<VariantLookup> FEATURE_MAP =
+        new ResettableLazy<>(() -> VariantLookup.create(LazyRegistries.BLOCKS));
+
+    /** The background state of any empty chunk section. */
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
 
     private VariantFeature(Codec<VariantFeatureConfig> config) {
         super(config);
         setRegistryName("osv:variant_feature");
     }
 
+    /** Allows the feature map to be recompiled when the world is restarted. */
+    public static void onWorldClosed() {
+        FEATURE_MAP.reset();
+    }
+
     @Override
     public boolean generate(ISeedReader world, ChunkGenerator chunk, Random rand, BlockPos pos, VariantFeatureConfig config) {
+        if (!FeatureProfiler.isEnabled()) {
+            return spawn(world, rand, pos, config) > 0;
+        }
+        final long start = System.nanoTime();
+        final int count = spawn(world, rand, pos, config);
+        FeatureProfiler.record(config.profile, System.nanoTime() - start, count);
+        return count > 0;
+    }
+
+    /**
+     * Attempts to spawn a single cluster at the given position.
+     *
+     * @return The number of blocks that were placed.
+     */
+    private int spawn(ISeedReader world, Random rand, BlockPos pos, VariantFeatureConfig config) {
         float randPI = rand.nextFloat() * (float) Math.PI;
 
         float sizeA = (float) config.size / 8.0F;
@@ -64,149 +90,215 @@ public class VariantFeature extends Feature<VariantFeatureConfig> {
         int offset = 2 * (ceil(sizeA) + sizeB);
         int diameter = 2 * (2 + sizeB);
 
-        for (int x = startX; x <= startX + offset; x++) {
-            for (int z = startZ; z <= startZ + offset; z++) {
-                if (y <= world.getHeight(Heightmap.Type.OCEAN_FLOOR_WG, x, z)) {
-                    return doPlace(world, rand, config, aX, bX, aZ, bZ, aY, bY, startX, y, startZ, offset, diameter);
-                }
+        if (HeightmapCache.get(world).isBelowSurface(world, y, startX, startZ, startX + offset, startZ + offset)) {
+            return doPlace(world, rand, config, aX, bX, aZ, bZ, aY, bY, startX, y, startZ, offset, diameter);
+        }
+        return 0;
+    }
+
+    protected int doPlace(IWorld world, Random rand, VariantFeatureConfig config, double aX, double bX, double aZ, double bZ, double aY, double bY, int startX, int startY, int startZ, int offset, int diameter) {
+        final VeinContext ctx = VeinContext.get().reset(config.size, config.nested.size() + 1);
+        final VeinGeometry.Spheres spheres = VeinGeometry.getValues(ctx.spheres, rand, config.size, aX, bX, aY, bY, aZ, bZ);
+        VeinGeometry.rasterize(spheres, config.size, ctx.flags, startX, startY, startZ, offset, diameter, ctx.positions);
+        return place(world, rand, config, ctx, FEATURE_MAP.get(), Cfg.batchedPlacement.get(), Cfg.denseOres.get());
+    }
+
+    /**
+     * Places every position collected in the given context. The table and settings are passed
+     * in, rather than read for each block, so that this can also be benchmarked on its own.
+     *
+     * @param batched Whether to write into proto chunk sections directly, per {@link #placeBatched}.
+     * @param denseOres Whether dense variants may be placed at all.
+     * @return The number of blocks that were placed.
+     */
+    int place(IWorld world, Random rand, VariantFeatureConfig config, VeinContext ctx, VariantLookup lookup, boolean batched, boolean denseOres) {
+        final int[] ordinals = getOrdinals(ctx.ordinals, lookup, config);
+        if (batched) {
+            return placeBatched(config, lookup, ordinals, rand, world, ctx, denseOres);
+        }
+        final LongList positions = ctx.positions;
+        final BlockPos.Mutable pos = ctx.pos;
+        int count = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            final long packed = positions.getLong(i);
+            pos.setPos(BlockPos.unpackX(packed), BlockPos.unpackY(packed), BlockPos.unpackZ(packed));
+            if (tryPlace(config, lookup, ordinals, rand, world, pos, denseOres)) {
+                count++;
             }
         }
+        return count;
+    }
 
+    private boolean tryPlace(VariantFeatureConfig config, VariantLookup lookup, int[] ordinals, Random rand, IWorld world, BlockPos pos, boolean denseOres) {
+        final int key = getVariant(config, lookup, ordinals, rand, world.getBlockState(pos), denseOres);
+        if (key != VariantLookup.NONE) {
+            return world.setBlockState(pos, lookup.getVariant(key), 2);
+        }
         return false;
     }
 
-    protected boolean doPlace(IWorld world, Random rand, VariantFeatureConfig config, double aX, double bX, double aZ, double bZ, double aY, double bY, int startX, int startY, int startZ, int offset, int diameter) {
-        BitSet flags = new BitSet(offset * diameter * offset);
-        BlockPos.Mutable pos = new BlockPos.Mutable();
-        double[] values = getValues(rand, config.size, aX, bX, aY, bY, aZ, bZ);
+    /**
+     * Places every position collected for the current cluster. Blocks inside of proto chunks
+     * are read directly from their sections. When writing them has no side effects which would
+     * otherwise be handled by the world, the writes are queued and then applied one section at
+     * a time, so that each section is only locked once. In any other case, this falls back to
+     * the regular behavior of {@link #tryPlace}.
+     *
+     *  Whether a variant may be written directly is precomputed for each pair of background and
+     * variant by {@link VariantLookup}, so that no block properties are checked here.
+     *
+     *  Random values are still consumed for each position in order. Because every position is
+     * unique, deferring the direct writes does not change which background is read anywhere.
+     *
+     * @return The number of blocks that were placed.
+     */
+    private int placeBatched(VariantFeatureConfig config, VariantLookup lookup, int[] ordinals, Random rand, IWorld world, VeinContext ctx, boolean denseOres) {
+        final LongList positions = ctx.positions;
+        final BlockPos.Mutable pos = ctx.pos;
+        final int[] writeTargets = ctx.ensureWrites(positions.size()).writeTargets;
+        final BlockState[] writeStates = ctx.writeStates;
+        IChunk chunk = null;
+        boolean direct = false;
+        long chunkPos = 0L;
         int count = 0;
 
-        for (int i = 0; i < config.size; i++) {
-            double radius = values[i * 4 + 3];
-            if (radius >= 0.0D) { // Value not drained; inside range.
-                double centerX = values[i * 4];
-                double centerY = values[i * 4 + 1];
-                double centerZ = values[i * 4 + 2];
-                int minX = Math.max(floor(centerX - radius), startX);
-                int minY = Math.max(floor(centerY - radius), startY);
-                int minZ = Math.max(floor(centerZ - radius), startZ);
-                int maxX = Math.max(floor(centerX + radius), minX);
-                int maxY = Math.max(floor(centerY + radius), minY);
-                int maxZ = Math.max(floor(centerZ + radius), minZ);
-
-                for (int x = minX; x <= maxX; x++) {
-                    double finalX = ((double) x + 0.5D - centerX) / radius;
-
-                    if (finalX * finalX < 1.0D) {
-                        for (int y = minY; y <= maxY; y++) {
-                            double finalY = ((double) y + 0.5D - centerY) / radius;
-
-                            if (finalX * finalX + finalY * finalY < 1.0D) {
-                                for (int z = minZ; z <= maxZ; z++) {
-                                    double finalZ = ((double) z + 0.5D - centerZ) / radius;
-
-                                    if (finalX * finalX + finalY * finalY + finalZ * finalZ < 1.0D) { // Inside sphere
-                                        // A unique, numeric identifier for each position.
-                                        int flag = x - startX + (y - startY) * offset + (z - startZ) * offset * diameter;
-
-                                        if (!flags.get(flag)) {// && config.chance == 100 || rand.nextFloat() <= config.chance) {
-                                            flags.set(flag);
-                                            pos.setPos(x, y, z);
-
-                                            if (tryPlace(config, rand, world, pos)) {
-                                                count++;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
+        for (int i = 0; i < positions.size(); i++) {
+            writeTargets[i] = -1;
+            final long packed = positions.getLong(i);
+            final int x = BlockPos.unpackX(packed);
+            final int y = BlockPos.unpackY(packed);
+            final int z = BlockPos.unpackZ(packed);
+            pos.setPos(x, y, z);
+
+            if (y < 0 || y > 255) {
+                if (tryPlace(config, lookup, ordinals, rand, world, pos, denseOres)) {
+                    count++;
+                }
+                continue;
+            }
+            final long currentPos = ChunkPos.asLong(x >> 4, z >> 4);
+            if (chunk == null || currentPos != chunkPos) {
+                chunk = world.getChunk(x >> 4, z >> 4);
+                chunkPos = currentPos;
+                direct = canAccessDirectly(chunk);
+            }
+            if (!direct) {
+                if (tryPlace(config, lookup, ordinals, rand, world, pos, denseOres)) {
+                    count++;
+                }
+                continue;
+            }
+            final ChunkSection section = chunk.getSections()[y >> 4];
+            final boolean empty = ChunkSection.isEmpty(section);
+            final BlockState bg = empty ? AIR : section.getBlockState(x & 15, y & 15, z & 15);
+            final int key = getVariant(config, lookup, ordinals, rand, bg, denseOres);
+
+            if (key != VariantLookup.NONE) {
+                if (!empty && lookup.canWriteDirectly(key)) {
+                    writeTargets[i] = getTargetId(ctx, section);
+                    writeStates[i] = lookup.getVariant(key);
+                    count++;
+                } else if (world.setBlockState(pos, lookup.getVariant(key), 2)) {
+                    count++;
                 }
             }
         }
-        return count > 0;
+        writeSections(ctx, positions.size());
+        return count;
+    }
+
+    /**
+     * Determines whether this chunk's sections may be accessed directly. This is only true for
+     * proto chunks which have not yet been promoted to a full chunk. Wrapped chunks are excluded,
+     * as they forward every call to a full chunk.
+     */
+    private static boolean canAccessDirectly(IChunk chunk) {
+        return chunk instanceof ChunkPrimer
+            && !(chunk instanceof ChunkPrimerWrapper)
+            && !chunk.getStatus().isAtLeast(ChunkStatus.FULL);
     }
 
-    private double[] getValues(Random rand, int size, double aX, double bX, double aY, double bY, double aZ, double bZ) {
-        double[] values = new double[size * 4];
-        for (int i = 0; i < size; i++) {
-            double fraction = (double) i / (double) size;
-            double centerX = lerp(fraction, aX, bX);
-            double centerY = lerp(fraction, aY, bY);
-            double centerZ = lerp(fraction, aZ, bZ);
-            double diameter = rand.nextDouble() * (double) size / 16.0D;
-            double finalRadius = ((sin((float) (Math.PI * fraction)) + 1.0F) * diameter + 1.0D) / 2.0D;
-            setAll(values, i * 4, centerX, centerY, centerZ, finalRadius);
+    /** Returns the index of this section in the context's targets, adding it if necessary. */
+    private static int getTargetId(VeinContext ctx, ChunkSection section) {
+        int id = ctx.targetIds.getInt(section);
+        if (id < 0) {
+            id = ctx.targets.size();
+            ctx.targets.add(section);
+            ctx.targetIds.put(section, id);
         }
-        return drainOutOfBounds(values, size);
+        return id;
     }
 
-    private double[] drainOutOfBounds(double[] values, int size) {
-        for (int i = 0; i < size - 1; i++) {
-            if (values[i * 4 + 3] > 0.0D) { // Inside range; value not drained
-                for (int j = i + 1; j < size; j++) {
-                    if (values[j * 4 + 3] > 0.0D) {
-                        double distX = values[i * 4] - values[j * 4];
-                        double distY = values[i * 4 + 1] - values[j * 4 + 1];
-                        double distZ = values[i * 4 + 2] - values[j * 4 + 2];
-                        double radius = values[i * 4 + 3] - values[j * 4 + 3];
-
-                        if (radius * radius > distX * distX + distY * distY + distZ * distZ) {
-                            if (radius > 0.0D) {
-                                values[j * 4 + 3] = -1.0D;
-                            } else {
-                                values[i * 4 + 3] = -1.0D;
-                            }
-                        }
+    /**
+     * Applies every queued write, locking each target section once for all of its writes. The
+     * targets are then cleared, so that the context may be placed again.
+     */
+    private static void writeSections(VeinContext ctx, int count) {
+        final LongList positions = ctx.positions;
+        final int[] writeTargets = ctx.writeTargets;
+        final BlockState[] writeStates = ctx.writeStates;
+        for (int id = 0; id < ctx.targets.size(); id++) {
+            final ChunkSection section = ctx.targets.get(id);
+            section.lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    if (writeTargets[i] == id) {
+                        final long packed = positions.getLong(i);
+                        final int x = BlockPos.unpackX(packed) & 15;
+                        final int y = BlockPos.unpackY(packed) & 15;
+                        final int z = BlockPos.unpackZ(packed) & 15;
+                        section.setBlockState(x, y, z, writeStates[i], false);
                     }
                 }
+            } finally {
+                section.unlock();
             }
         }
-        return values;
-    }
-
-    private void setAll(double[] values, int index, double a, double b, double c, double d) {
-        values[index] = a;
-        values[index + 1] = b;
-        values[index + 2] = c;
-        values[index + 3] = d;
+        ctx.targets.clear();
+        ctx.targetIds.clear();
     }
 
-    private boolean tryPlace(VariantFeatureConfig config, Random rand, IWorld world, BlockPos pos) {
-        final BlockState bg = world.getBlockState(pos);
-        final OreProperties target = getTarget(config, rand);
-        BlockState state = getSpawnCandidate(target, bg);
-        if (state != null) {
-            if (Cfg.denseOres.get() && target.canBeDense && config.denseChance != 0.0) {
+    /**
+     * Chooses the variant to place over the given background block. Random values are consumed
+     * in the same order regardless of which placement mode is in use.
+     *
+     * @return The key of the variant in the lookup, or else {@link VariantLookup#NONE} if nothing
+     *         can be placed here.
+     */
+    private static int getVariant(VariantFeatureConfig config, VariantLookup lookup, int[] ordinals, Random rand, BlockState bg, boolean denseOres) {
+        final int index = getTarget(config, rand);
+        final int key = lookup.getKey(bg, ordinals[index]);
+        if (key != VariantLookup.NONE) {
+            final OreProperties target = index == 0 ? config.target : config.nested.get(index - 1).type;
+            if (denseOres && target.canBeDense && config.denseChance != 0.0) {
                 if (rand.nextFloat() <= config.denseChance) {
-                    state = state.with(OreVariant.DENSE, true);
+                    return VariantLookup.dense(key);
                 }
             }
-            return world.setBlockState(pos, state, 2);
         }
-        return false;
+        return key;
     }
 
-    private static OreProperties getTarget(VariantFeatureConfig config, Random rand) {
-        for (NestedType t : config.nested) {
-            if (rand.nextFloat() <= t.chance) {
-                return t.type;
+    /**
+     * Chooses which type of ore to spawn at the current position.
+     *
+     * @return 0 for the main target, or else the index of the nested type + 1.
+     */
+    private static int getTarget(VariantFeatureConfig config, Random rand) {
+        for (int i = 0; i < config.nested.size(); i++) {
+            if (rand.nextFloat() <= config.nested.get(i).chance) {
+                return i + 1;
             }
         }
-        return config.target;
-    }
-
-    @Nullable
-    private static BlockState getSpawnCandidate(OreProperties target, BlockState bg) {
-        return FEATURE_MAP.get().get(bg, target);
+        return 0;
     }
 
-    private static DualMap<BlockState, OreProperties, BlockState> createFeatureMap() {
-        final DualMap.Builder<BlockState, OreProperties, BlockState> builder = new DualMap.Builder<>();
-        for (OreVariant block : LazyRegistries.BLOCKS) {
-            block.getBackgroundMap().forEach((bg, variant) -> builder.put(bg, block.properties, variant));
+    /** Resolves the lookup ordinals of every ore type in the config, in order of {@link #getTarget}. */
+    private static int[] getOrdinals(int[] ordinals, VariantLookup lookup, VariantFeatureConfig config) {
+        ordinals[0] = lookup.getOrdinal(config.target);
+        for (int i = 0; i < config.nested.size(); i++) {
+            ordinals[i + 1] = lookup.getOrdinal(config.nested.get(i).type);
         }
-        return builder.build();
+        return ordinals;
     }
 }
\ No newline at end of file
@@ -3,17 +3,25 @@ package com.personthecat.orestonevariants.world;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import com.personthecat.orestonevariants.properties.OreProperties;
+import net.minecraft.world.gen.GenerationStage;
 import net.minecraft.world.gen.feature.IFeatureConfig;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 public class VariantFeatureConfig implements IFeatureConfig {
 
+    /** The largest cluster size which can be serialized. */
+    public static final int MAX_SIZE = 64;
+
+    /** The largest cluster size which should be generated by default. Larger sizes cause cascading gen lag. */
+    public static final int MAX_STABLE_SIZE = 52;
+
     /** Required so that VFC may be serialized internally via vanilla functions. */
     public static final Codec<VariantFeatureConfig> CODEC = RecordCodecBuilder.create(instance ->
         instance.group(
             OreProperties.CODEC.fieldOf("target").forGetter(config -> config.target),
-            Codec.intRange(0, 64).fieldOf("size").forGetter(config -> config.size),
+            Codec.intRange(0, MAX_SIZE).fieldOf("size").forGetter(config -> config.size),
             Codec.doubleRange(0.0, 1.0).fieldOf("denseChance").forGetter(config -> config.denseChance),
             Codec.list(NestedType.CODEC).fieldOf("nested").forGetter(config -> config.nested))
         .apply(instance, VariantFeatureConfig::new)
@@ -31,10 +39,18 @@ public class VariantFeatureConfig implements IFeatureConfig {
     /** A list of nested property types to spawn inside of this one. */
     public final List<NestedType> nested;
 
+    /** Where time spent generating this feature is recorded, resolved once per config. */
+    public final FeatureProfiler.Target profile;
+
     public VariantFeatureConfig(OreProperties target, int size, double denseChance, List<NestedType> nested) {
+        this(target, size, denseChance, nested, null);
+    }
+
+    public VariantFeatureConfig(OreProperties target, int size, double denseChance, List<NestedType> nested, @Nullable GenerationStage.Decoration stage) {
         this.target = target;
         this.size = size;
         this.denseChance = denseChance;
         this.nested = nested;
+        this.profile = FeatureProfiler.getTarget(stage, target.name);
     }
 }
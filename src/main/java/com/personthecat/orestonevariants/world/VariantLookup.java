@@ -0,0 +1,243 @@
+package com.personthecat.orestonevariants.world;
+
+import com.personthecat.orestonevariants.blocks.OreVariant;
+import com.personthecat.orestonevariants.properties.OreProperties;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.village.PointOfInterestType;
+import net.minecraft.world.EmptyBlockReader;
+import net.minecraft.world.IBlockReader;
+import net.minecraft.world.gen.Heightmap;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ *   A compiled table containing every ore variant that should be spawned given a background state
+ * and a type of ore. Background states are indexed by their global state ID and ore properties by
+ * a dense ordinal, which means that the lookup done for each block in a cluster is reduced to a
+ * single state ID query and two array reads.
+ *
+ *   Ordinals are only valid for the table they were retrieved from. Callers should resolve them
+ * once per cluster via {@link #getOrdinal} and reuse them for every block being placed.
+ *
+ *   Each cell also stores the dense form of its variant and whether either form may be written
+ * directly into a chunk section, so that none of this needs to be determined for each block.
+ * Cells are addressed by a key from {@link #getKey}, which refers to the regular variant, and
+ * {@link #dense}, which refers to its dense form.
+ */
+public class VariantLookup {
+
+    /** Indicates that a state or property type is not present in this table. */
+    public static final int NONE = -1;
+
+    /** Every heightmap which may need to be updated when a block is replaced. */
+    private static final Heightmap.Type[] HEIGHTMAPS = Heightmap.Type.values();
+
+    /** Maps each global state ID to its row in the table, or else {@link #NONE}. */
+    private final int[] rows;
+
+    /** Maps each ore type to its column in the table. */
+    private final Reference2IntMap<OreProperties> ordinals;
+
+    /**
+     * The flattened table of variants, where <code>key = (row * width + ordinal) * 2</code>. The
+     * dense form of each variant immediately follows it.
+     */
+    private final BlockState[] variants;
+
+    /** Whether each variant in {@link #variants} may replace its background directly. */
+    private final boolean[] direct;
+
+    /** The number of ore types, i.e. columns, in each row. */
+    private final int width;
+
+    private VariantLookup(int[] rows, Reference2IntMap<OreProperties> ordinals, BlockState[] variants, boolean[] direct) {
+        this.rows = rows;
+        this.ordinals = ordinals;
+        this.variants = variants;
+        this.direct = direct;
+        this.width = ordinals.size();
+    }
+
+    /**
+     * Compiles a new table from the background maps of each block in the given collection.
+     *
+     * @param blocks Every ore variant which may be spawned in the world.
+     * @return A new table containing every variant of each block.
+     */
+    public static VariantLookup create(Iterable<OreVariant> blocks) {
+        final Map<OreProperties, Map<BlockState, BlockState>> backgrounds = new LinkedHashMap<>();
+        for (OreVariant block : blocks) {
+            backgrounds.computeIfAbsent(block.properties, p -> new HashMap<>()).putAll(block.getBackgroundMap());
+        }
+        return compile(backgrounds);
+    }
+
+    /**
+     * Compiles a new table from the background map of each type of ore.
+     *
+     * @param backgrounds The variant to place over each background, for each type of ore.
+     * @return A new table containing every variant of each type.
+     */
+    static VariantLookup compile(Map<OreProperties, Map<BlockState, BlockState>> backgrounds) {
+        final Reference2IntMap<OreProperties> ordinals = new Reference2IntOpenHashMap<>();
+        ordinals.defaultReturnValue(NONE);
+        final int[] rows = new int[Block.BLOCK_STATE_IDS.size()];
+        Arrays.fill(rows, NONE);
+        final List<BlockState> bgs = new ArrayList<>();
+
+        // Assign each background and ore type its index.
+        for (Map.Entry<OreProperties, Map<BlockState, BlockState>> type : backgrounds.entrySet()) {
+            ordinals.put(type.getKey(), ordinals.size());
+            for (BlockState bg : type.getValue().keySet()) {
+                final int id = Block.getStateId(bg);
+                if (id >= 0 && rows[id] == NONE) {
+                    rows[id] = bgs.size();
+                    bgs.add(bg);
+                }
+            }
+        }
+        final BlockState[] variants = new BlockState[bgs.size() * ordinals.size() * 2];
+        final boolean[] direct = new boolean[variants.length];
+        for (Map.Entry<OreProperties, Map<BlockState, BlockState>> type : backgrounds.entrySet()) {
+            final int ordinal = ordinals.getInt(type.getKey());
+            for (Map.Entry<BlockState, BlockState> entry : type.getValue().entrySet()) {
+                final int id = Block.getStateId(entry.getKey());
+                if (id >= 0) {
+                    final int key = (rows[id] * ordinals.size() + ordinal) * 2;
+                    final BlockState bg = entry.getKey();
+                    final BlockState variant = entry.getValue();
+                    final BlockState dense = variant.getBlock() instanceof OreVariant
+                        ? variant.with(OreVariant.DENSE, true) : variant;
+                    variants[key] = variant;
+                    variants[key + 1] = dense;
+                    direct[key] = canWriteDirectly(bg, variant);
+                    direct[key + 1] = canWriteDirectly(bg, dense);
+                }
+            }
+        }
+        return new VariantLookup(rows, ordinals, variants, direct);
+    }
+
+    /**
+     * Determines whether replacing <code>bg</code> with <code>state</code> would cause any updates
+     * to lighting, heightmaps, tile entities, points of interest, or post processing. If not, the
+     * state can safely be written directly into a chunk section.
+     *
+     *   Properties which may depend on the position are checked in an empty world. Variants copy
+     * these properties from their background, so any difference between the two is still found.
+     */
+    private static boolean canWriteDirectly(BlockState bg, BlockState state) {
+        final IBlockReader world = EmptyBlockReader.INSTANCE;
+        final BlockPos pos = BlockPos.ZERO;
+        if (bg.getLightValue(world, pos) != 0 || state.getLightValue(world, pos) != 0) {
+            return false;
+        }
+        if (bg.isTransparent() || state.isTransparent()) {
+            return false;
+        }
+        if (bg.getOpacity(world, pos) != state.getOpacity(world, pos)) {
+            return false;
+        }
+        if (bg.hasTileEntity() || state.hasTileEntity()) {
+            return false;
+        }
+        for (Heightmap.Type type : HEIGHTMAPS) {
+            final Predicate<BlockState> predicate = type.getHeightLimitPredicate();
+            if (predicate.test(bg) != predicate.test(state)) {
+                return false;
+            }
+        }
+        if (state.blockNeedsPostProcessing(world, pos)) {
+            return false;
+        }
+        return PointOfInterestType.forState(bg).equals(PointOfInterestType.forState(state));
+    }
+
+    /**
+     * Retrieves the column used by this table for the given type of ore.
+     *
+     * @param props The type of ore being spawned.
+     * @return The ordinal of this ore type, or else {@link #NONE}.
+     */
+    public int getOrdinal(OreProperties props) {
+        return ordinals.getInt(props);
+    }
+
+    /**
+     * Retrieves the variant to be placed when replacing the given background state.
+     *
+     * @param bg The block state currently in the world.
+     * @param ordinal The column of the ore being spawned, per {@link #getOrdinal}.
+     * @return The variant state, or else <code>null</code> if it cannot be placed here.
+     */
+    @Nullable
+    public BlockState get(BlockState bg, int ordinal) {
+        final int key = getKey(bg, ordinal);
+        return key == NONE ? null : variants[key];
+    }
+
+    /**
+     * Retrieves the key of the variant to be placed when replacing the given background state.
+     *
+     * @param bg The block state currently in the world.
+     * @param ordinal The column of the ore being spawned, per {@link #getOrdinal}.
+     * @return The key of the regular variant, or else {@link #NONE} if it cannot be placed here.
+     */
+    public int getKey(BlockState bg, int ordinal) {
+        if (ordinal == NONE) {
+            return NONE;
+        }
+        final int id = Block.getStateId(bg);
+        if (id < 0 || id >= rows.length) {
+            return NONE;
+        }
+        final int row = rows[id];
+        if (row == NONE) {
+            return NONE;
+        }
+        final int key = (row * width + ordinal) * 2;
+        return variants[key] == null ? NONE : key;
+    }
+
+    /**
+     * Converts the key of a regular variant into the key of its dense form.
+     *
+     * @param key A key returned by {@link #getKey}.
+     * @return The key of the dense variant.
+     */
+    public static int dense(int key) {
+        return key | 1;
+    }
+
+    /**
+     * Retrieves the variant stored under the given key.
+     *
+     * @param key A key returned by {@link #getKey} or {@link #dense}.
+     * @return The variant state.
+     */
+    public BlockState getVariant(int key) {
+        return variants[key];
+    }
+
+    /**
+     * Determines whether the variant stored under the given key may be written directly into a
+     * chunk section in place of its background, per {@link #canWriteDirectly(BlockState, BlockState)}.
+     *
+     * @param key A key returned by {@link #getKey} or {@link #dense}.
+     * @return Whether a direct write has no side effects.
+     */
+    public boolean canWriteDirectly(int key) {
+        return direct[key];
+    }
+}
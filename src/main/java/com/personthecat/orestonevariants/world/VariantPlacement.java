@@ -7,8 +7,10 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.Random;
-import java.util.stream.IntStream;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.personthecat.orestonevariants.util.CommonMethods.numBetween;
 
@@ -25,16 +27,61 @@ public class VariantPlacement extends SimplePlacement<VariantPlacementConfig> {
     @NotNull
     @Override
     public Stream<BlockPos> getPositions(Random rand, VariantPlacementConfig config, BlockPos origin) {
-        return IntStream.range(0, numBetween(rand, config.minCount, config.maxCount))
-            .filter(i -> config.chance == 1.0 || rand.nextFloat() <= config.chance)
-            .mapToObj(i -> genPos(rand, config, origin));
+        final int count = numBetween(rand, config.minCount, config.maxCount);
+        return StreamSupport.stream(new PositionSpliterator(rand, config, origin, count), false);
     }
 
-    private static BlockPos genPos(Random rand, VariantPlacementConfig config, BlockPos origin) {
-        return new BlockPos(
-            rand.nextInt(16) + origin.getX(),
-            rand.nextInt(config.incrHeight + 1) + config.minHeight,
-            rand.nextInt(16) + origin.getZ()
-        );
+    /**
+     *  Lazily generates each position in the current chunk. Random values are consumed in the
+     * same order as they would be by an equivalent <code>IntStream</code>, interleaved with any
+     * features being spawned downstream.
+     *
+     *  This avoids the boxing and intermediate stages of the original pipeline. Each position
+     * is a new, immutable object, as consumers of this stream may keep any position it emits.
+     */
+    private static class PositionSpliterator implements Spliterator<BlockPos> {
+        final Random rand;
+        final VariantPlacementConfig config;
+        final int originX;
+        final int originZ;
+        int remaining;
+
+        PositionSpliterator(Random rand, VariantPlacementConfig config, BlockPos origin, int count) {
+            this.rand = rand;
+            this.config = config;
+            this.originX = origin.getX();
+            this.originZ = origin.getZ();
+            this.remaining = count;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BlockPos> action) {
+            while (remaining > 0) {
+                remaining--;
+                if (config.chance == 1.0 || rand.nextFloat() <= config.chance) {
+                    final int x = rand.nextInt(16) + originX;
+                    final int y = rand.nextInt(config.incrHeight + 1) + config.minHeight;
+                    final int z = rand.nextInt(16) + originZ;
+                    action.accept(new BlockPos(x, y, z));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<BlockPos> trySplit() {
+            return null; // Positions depend on the order of random values.
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
     }
 }
\ No newline at end of file
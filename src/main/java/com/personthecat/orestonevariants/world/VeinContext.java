@@ -0,0 +1,73 @@
+package com.personthecat.orestonevariants.world;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanMap;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceList;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.BitSet;
+
+/**
+ *  A set of buffers which are confined to a single thread and reused between clusters so that
+ * no allocations are needed for each attempt. Shared by every feature using {@link VeinGeometry}.
+ */
+class VeinContext {
+
+    /** Scratch buffers reused by every cluster spawned on the current thread. */
+    private static final ThreadLocal<VeinContext> CONTEXT = ThreadLocal.withInitial(VeinContext::new);
+
+    final BitSet flags = new BitSet();
+    final BlockPos.Mutable pos = new BlockPos.Mutable();
+    final LongList positions = new LongArrayList();
+    final VeinGeometry.Spheres spheres = new VeinGeometry.Spheres();
+    final Reference2BooleanMap<ChunkSection> sections = new Reference2BooleanOpenHashMap<>();
+    int[] ordinals = new int[0];
+
+    /** Every section written to by the current cluster, in order of first appearance. */
+    final ReferenceList<ChunkSection> targets = new ReferenceArrayList<>();
+    /** The index of each section in {@link #targets}. */
+    final Reference2IntMap<ChunkSection> targetIds = new Reference2IntOpenHashMap<>();
+    /** The index of the target section for each position, or -1 if it is not written directly. */
+    int[] writeTargets = new int[0];
+    /** The state to be written directly at each position. */
+    BlockState[] writeStates = new BlockState[0];
+
+    private VeinContext() {
+        targetIds.defaultReturnValue(-1);
+    }
+
+    /** Retrieves the context for the current thread. */
+    static VeinContext get() {
+        return CONTEXT.get();
+    }
+
+    /** Clears the flags and ensures each buffer can hold the given number of elements. */
+    VeinContext reset(int size, int types) {
+        flags.clear();
+        positions.clear();
+        sections.clear();
+        targets.clear();
+        targetIds.clear();
+        spheres.ensureCapacity(size);
+        if (ordinals.length < types) {
+            ordinals = new int[types];
+        }
+        return this;
+    }
+
+    /** Ensures that a write can be queued for every position in the current cluster. */
+    VeinContext ensureWrites(int count) {
+        if (writeTargets.length < count) {
+            writeTargets = new int[count];
+            writeStates = new BlockState[count];
+        }
+        return this;
+    }
+}
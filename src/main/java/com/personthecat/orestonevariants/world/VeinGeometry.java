@@ -0,0 +1,260 @@
+package com.personthecat.orestonevariants.world;
+
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.OreFeature;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static net.minecraft.util.math.MathHelper.*;
+
+/**
+ *  The pure geometry used for spawning clusters. None of these functions depend on the world,
+ * which means they can be measured and verified in isolation from the rest of the generator.
+ */
+public class VeinGeometry {
+
+    /**
+     * Determines the range of z coordinates in the current row which are inside of the sphere.
+     * The bounds are first estimated and then corrected using the exact expression from the
+     * original placement loop, which guarantees the same positions are visited. Because this
+     * expression only increases with the distance from the center, the result is contiguous.
+     *
+     * @return The first z coordinate in the upper 32 bits and the last in the lower 32 bits. If
+     *         the span is empty, the last coordinate will be less than the first.
+     */
+    public static long getSpan(double distXY, double centerZ, double radius, int minZ, int maxZ) {
+        final double half = Math.sqrt(1.0D - distXY) * radius;
+        int lo = Math.max(minZ, Math.min(maxZ, ceil(centerZ - 0.5D - half)));
+        int hi = Math.max(lo, Math.min(maxZ, floor(centerZ - 0.5D + half)));
+
+        while (lo > minZ && isInside(distXY, lo - 1, centerZ, radius)) {
+            lo--;
+        }
+        while (lo <= maxZ && !isInside(distXY, lo, centerZ, radius)) {
+            lo++;
+        }
+        if (lo > maxZ) {
+            return ((long) lo << 32) | ((long) (lo - 1) & 0xFFFFFFFFL);
+        }
+        hi = Math.max(hi, lo);
+        while (hi < maxZ && isInside(distXY, hi + 1, centerZ, radius)) {
+            hi++;
+        }
+        while (!isInside(distXY, hi, centerZ, radius)) {
+            hi--;
+        }
+        return ((long) lo << 32) | ((long) hi & 0xFFFFFFFFL);
+    }
+
+    /** The exact sphere membership test used by the original placement loop. */
+    private static boolean isInside(double distXY, int z, double centerZ, double radius) {
+        final double finalZ = ((double) z + 0.5D - centerZ) / radius;
+        return distXY + finalZ * finalZ < 1.0D;
+    }
+
+    /**
+     * Collects every position inside of the given spheres, in order. Positions shared between
+     * multiple spheres are only included the first time they are found. Each position is visited
+     * in exactly the same order as the original placement loop in {@link OreFeature}.
+     *
+     * @param spheres The spheres making up the current cluster.
+     * @param size The number of spheres in the cluster.
+     * @param flags A cleared set used to track which positions have been found.
+     * @param startX The minimum x coordinate of the cluster.
+     * @param startY The minimum y coordinate of the cluster.
+     * @param startZ The minimum z coordinate of the cluster.
+     * @param offset The horizontal width of the cluster's bounding box.
+     * @param diameter The height of the cluster's bounding box.
+     * @param positions A cleared list to write every packed position into.
+     * @return <code>positions</code>, containing every position in the cluster.
+     */
+    public static LongList rasterize(Spheres spheres, int size, BitSet flags, int startX, int startY, int startZ, int offset, int diameter, LongList positions) {
+        final int area = offset * diameter;
+        for (int i = 0; i < size; i++) {
+            double radius = spheres.rs[i];
+            if (radius >= 0.0D) { // Value not drained; inside range.
+                double centerX = spheres.xs[i];
+                double centerY = spheres.ys[i];
+                double centerZ = spheres.zs[i];
+                int minX = Math.max(floor(centerX - radius), startX);
+                int minY = Math.max(floor(centerY - radius), startY);
+                int minZ = Math.max(floor(centerZ - radius), startZ);
+                int maxX = Math.max(floor(centerX + radius), minX);
+                int maxY = Math.max(floor(centerY + radius), minY);
+                int maxZ = Math.max(floor(centerZ + radius), minZ);
+
+                for (int x = minX; x <= maxX; x++) {
+                    double finalX = ((double) x + 0.5D - centerX) / radius;
+                    double distX = finalX * finalX;
+
+                    if (distX < 1.0D) {
+                        for (int y = minY; y <= maxY; y++) {
+                            double finalY = ((double) y + 0.5D - centerY) / radius;
+                            double distXY = distX + finalY * finalY;
+
+                            if (distXY < 1.0D) {
+                                // Only the contiguous span of z values inside the sphere is visited.
+                                final long span = getSpan(distXY, centerZ, radius, minZ, maxZ);
+                                final int lastZ = (int) span;
+                                final int row = x - startX + (y - startY) * offset;
+
+                                for (int z = (int) (span >> 32); z <= lastZ; z++) {
+                                    // A unique, numeric identifier for each position.
+                                    int flag = row + (z - startZ) * area;
+
+                                    if (!flags.get(flag)) {
+                                        flags.set(flag);
+                                        positions.add(BlockPos.pack(x, y, z));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * The minimum distance by which spheres must be separated, beyond the difference in their
+     * radii, before they are excluded from draining. This covers any rounding error in their
+     * interpolated coordinates.
+     */
+    private static final double DRAIN_MARGIN = 1E-3;
+
+    /**
+     * Generates the spheres making up a single cluster, interpolated between its two endpoints.
+     * Any sphere which is fully contained by another will be drained.
+     *
+     * @param spheres A buffer which can hold at least <code>size</code> spheres to write into.
+     * @return <code>spheres</code>, containing each sphere in order.
+     */
+    public static Spheres getValues(Spheres spheres, Random rand, int size, double aX, double bX, double aY, double bY, double aZ, double bZ) {
+        final double[] xs = spheres.xs;
+        final double[] ys = spheres.ys;
+        final double[] zs = spheres.zs;
+        final double[] rs = spheres.rs;
+
+        // Random values must be consumed in order, so radii are generated separately.
+        for (int i = 0; i < size; i++) {
+            double fraction = (double) i / (double) size;
+            double diameter = rand.nextDouble() * (double) size / 16.0D;
+            rs[i] = ((sin((float) (Math.PI * fraction)) + 1.0F) * diameter + 1.0D) / 2.0D;
+        }
+        for (int i = 0; i < size; i++) {
+            double fraction = (double) i / (double) size;
+            xs[i] = lerp(fraction, aX, bX);
+            ys[i] = lerp(fraction, aY, bY);
+            zs[i] = lerp(fraction, aZ, bZ);
+        }
+        return drainOutOfBounds(spheres, size, getStep(size, aX, bX, aZ, bZ));
+    }
+
+    /**
+     * Variant of {@link #getValues} which exactly reproduces the spheres generated by vanilla
+     * {@link OreFeature}. Note that vanilla interpolates using single precision fractions.
+     */
+    public static Spheres getVanillaValues(Spheres spheres, Random rand, int size, double aX, double bX, double aY, double bY, double aZ, double bZ) {
+        final double[] xs = spheres.xs;
+        final double[] ys = spheres.ys;
+        final double[] zs = spheres.zs;
+        final double[] rs = spheres.rs;
+
+        for (int i = 0; i < size; i++) {
+            float fraction = (float) i / (float) size;
+            double diameter = rand.nextDouble() * (double) size / 16.0D;
+            rs[i] = ((double) (sin((float) Math.PI * fraction) + 1.0F) * diameter + 1.0D) / 2.0D;
+        }
+        for (int i = 0; i < size; i++) {
+            float fraction = (float) i / (float) size;
+            xs[i] = lerp(fraction, aX, bX);
+            ys[i] = lerp(fraction, aY, bY);
+            zs[i] = lerp(fraction, aZ, bZ);
+        }
+        return drainOutOfBounds(spheres, size, getStep(size, aX, bX, aZ, bZ));
+    }
+
+    /** Determines the horizontal distance between each consecutive sphere. */
+    private static double getStep(int size, double aX, double bX, double aZ, double bZ) {
+        return Math.sqrt((bX - aX) * (bX - aX) + (bZ - aZ) * (bZ - aZ)) / (double) size;
+    }
+
+    /**
+     * Marks any sphere fully inside of another with a negative radius so that it can be skipped.
+     *
+     *  Because every sphere is evenly spaced along a single line, spheres which are further apart
+     * than the largest difference in radii can never contain one another. Comparisons are only
+     * made within this window, which produces the same result as comparing every pair. This
+     * pruning is always applied, as there is no output for which it differs. VeinGeometryTest
+     * verifies this against the original pairwise comparison.
+     *
+     * @param step The horizontal distance between each consecutive sphere.
+     */
+    public static Spheres drainOutOfBounds(Spheres spheres, int size, double step) {
+        final double[] xs = spheres.xs;
+        final double[] ys = spheres.ys;
+        final double[] zs = spheres.zs;
+        final double[] rs = spheres.rs;
+        final int window = getDrainWindow(rs, size, step);
+
+        for (int i = 0; i < size - 1; i++) {
+            if (rs[i] > 0.0D) { // Inside range; value not drained
+                final int end = Math.min(size, i + window + 1);
+                for (int j = i + 1; j < end; j++) {
+                    if (rs[j] > 0.0D) {
+                        double distX = xs[i] - xs[j];
+                        double distY = ys[i] - ys[j];
+                        double distZ = zs[i] - zs[j];
+                        double radius = rs[i] - rs[j];
+
+                        if (radius * radius > distX * distX + distY * distY + distZ * distZ) {
+                            if (radius > 0.0D) {
+                                rs[j] = -1.0D;
+                            } else {
+                                rs[i] = -1.0D;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return spheres;
+    }
+
+    /** Determines the maximum number of indices apart that two spheres may drain one another. */
+    private static int getDrainWindow(double[] rs, int size, double step) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, rs[i]);
+            max = Math.max(max, rs[i]);
+        }
+        final double window = Math.ceil((max - min + DRAIN_MARGIN) / step);
+        if (!(window < size)) { // Also handles NaN and infinity.
+            return size;
+        }
+        return (int) window;
+    }
+
+    /** The center and radius of every sphere in a cluster, stored as separate arrays. */
+    public static class Spheres {
+        public double[] xs = new double[0];
+        public double[] ys = new double[0];
+        public double[] zs = new double[0];
+        public double[] rs = new double[0];
+
+        /** Ensures that this buffer can hold the given number of spheres. */
+        public Spheres ensureCapacity(int size) {
+            if (rs.length < size) {
+                xs = new double[size];
+                ys = new double[size];
+                zs = new double[size];
+                rs = new double[size];
+            }
+            return this;
+        }
+    }
+}
\ No newline at end of file
@@ -4,7 +4,9 @@ import com.personthecat.orestonevariants.blocks.SharedStateBlock;
 import com.personthecat.orestonevariants.util.unsafe.ReflectionTools;
 import com.personthecat.orestonevariants.util.unsafe.UnsafeUtil;
 import io.netty.util.internal.EmptyPriorityQueue;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import lombok.extern.log4j.Log4j2;
 import mcp.MethodsReturnNonnullByDefault;
 import net.minecraft.block.Block;
@@ -52,7 +54,6 @@ import javax.annotation.ParametersAreNonnullByDefault;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -63,7 +64,9 @@ import java.util.function.Supplier;
  * other block. When it is finished, it will be able to replicate a regular world object with
  * exact parity by replacing any non-intercepted methods with calls to the world being wrapped.
  *
- * Todo: Still investigating how we can generate this class.
+ *   Methods which read or write blocks are implemented by hand below. Every other public world
+ * method is forwarded to the wrapped world by a subclass which {@link WorldInterceptorGenerator}
+ * generates once, when this class is loaded.
  */
 @Log4j2
 @ParametersAreNonnullByDefault
@@ -84,10 +87,48 @@ public class WorldInterceptor extends ServerWorld {
         ReflectionTools.getMethod(MobEntity.class, "func_184651_r");
 
     /**
-     * A map containing every interceptor instance for the current game. It is imperative that
-     * this map be cleared every time the user leaves a world.
+     * A map containing every interceptor instance for the current game, keyed by the identity
+     * hash code of the world being wrapped. It is imperative that this map be cleared every time
+     * the user leaves a world.
+     *
+     *   Every world generation region is a separate world, which means that entries are added
+     * constantly while chunks are generating. Entries whose world has been culled are swept
+     * out whenever the map grows past {@link #sweepThreshold}.
+     *
+     *   Each thread remembers the last interceptor it was primed for, so this map is only read
+     * when a thread switches worlds.
+     */
+    private static final Int2ObjectMap<WorldInterceptor> INSTANCE_MAP = new Int2ObjectOpenHashMap<>();
+
+    /** Guards any access to {@link #INSTANCE_MAP}. */
+    private static final Object LOCK = new Object();
+
+    /** The smallest size at which the map will be swept for culled worlds. */
+    private static final int MIN_SWEEP_THRESHOLD = 64;
+
+    /**
+     * The size of {@link #INSTANCE_MAP} which will trigger the next sweep. This doubles the
+     * number of live entries after each sweep, so the cost of sweeping is amortized across
+     * every insertion.
+     */
+    private static int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+    /**
+     * The data defining everything being intercepted in the current thread. A single object is
+     * shared between every interceptor, as only one of them may be primed at a time in any given
+     * thread. This avoids conflicts between the integrated server and client threads when running
+     * locally.
+     */
+    private static final ThreadLocal<Data> DATA = ThreadLocal.withInitial(Data::new);
+
+    /**
+     * Returned by {@link #getData} when the current thread is not primed for this interceptor.
+     * It is never primed, and thus never intercepts anything.
      */
-    private static final Map<Integer, WorldInterceptor> INSTANCE_MAP = new ConcurrentHashMap<>();
+    private static final Data UNPRIMED = new Data();
+
+    /** The generated subclass which is allocated for every world. */
+    private static final Class<? extends WorldInterceptor> IMPLEMENTATION = WorldInterceptorGenerator.generate();
 
     /**
      * The underlying world object of any kind being intercepted. This allows world references
@@ -96,12 +137,6 @@ public class WorldInterceptor extends ServerWorld {
      */
     private WeakReference<IBlockReader> wrapped;
 
-    /**
-     * The interceptor has a different set of data in each thread. This avoids conflicts between
-     * The integrated server and client threads when running locally.
-     */
-    private ThreadLocal<Data> data;
-
     /**
      * This constructor only exists so that the compiler will consider it a valid object. It is
      * not intended to be used in any way.
@@ -126,29 +161,69 @@ public class WorldInterceptor extends ServerWorld {
      * @return The thread-local data for this interceptor in a builder style syntax.
      */
     public static Data inWorld(IBlockReader world) {
+        final Data data = DATA.get();
+        final WorldInterceptor last = data.last;
+        if (last != null && last.wrapped.get() == world) {
+            return data.inWorld(last, world);
+        }
+        return data.inWorld(getInterceptor(world), world);
+    }
+
+    /**
+     * Locates the interceptor for the given world, creating a new one if none is present. If a
+     * different world happens to share the same identity hash code, or the previous world has
+     * been culled, its interceptor will be replaced.
+     *
+     * @param world The object providing {@link BlockState}s.
+     * @return The interceptor wrapping exactly this world.
+     */
+    private static WorldInterceptor getInterceptor(IBlockReader world) {
         final int id = System.identityHashCode(world);
-        WorldInterceptor interceptor = INSTANCE_MAP.get(id);
-        if (interceptor == null) {
-            INSTANCE_MAP.put(id, (interceptor = create(world)));
+        synchronized (LOCK) {
+            final WorldInterceptor current = INSTANCE_MAP.get(id);
+            if (current != null && current.wrapped.get() == world) {
+                return current;
+            }
+            if (INSTANCE_MAP.size() >= sweepThreshold) {
+                sweep();
+            }
+            final WorldInterceptor created = create(world);
+            INSTANCE_MAP.put(id, created);
+            return created;
         }
-        return interceptor.getData().inWorld(world);
+    }
+
+    /** Removes every interceptor whose world has been culled. Must be called while holding {@link #LOCK}. */
+    private static void sweep() {
+        INSTANCE_MAP.values().removeIf(interceptor -> interceptor.wrapped.get() == null);
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, INSTANCE_MAP.size() * 2);
     }
 
     /**
      * Nullifies all of the instructions for which values to intercept. When used correctly, this
      * guarantees that no unintended side effects may occur outside of {@link SharedStateBlock}.
+     * Only the current thread's data are affected.
      */
     public static void resetThread() {
-        INSTANCE_MAP.forEach((c, i) -> i.getData().reset());
+        final Data data = DATA.get();
+        if (data.isPrimed) {
+            data.reset();
+        }
     }
 
     /**
      * Removes all interceptors from the cache, freeing memory and ensuring that no invalid
-     * references could potentially be used.
+     * references could potentially be used. Other threads keep at most the tick list of the
+     * last world they were primed for, which is replaced when they are primed for another world.
      */
     public static void clearAll() {
         log.info("Clearing interceptor cache.");
-        INSTANCE_MAP.clear();
+        resetThread();
+        DATA.get().release();
+        synchronized (LOCK) {
+            INSTANCE_MAP.clear();
+            sweepThreshold = MIN_SWEEP_THRESHOLD;
+        }
     }
 
     /**
@@ -159,7 +234,7 @@ public class WorldInterceptor extends ServerWorld {
      * @return A new interceptor which can be adapted to any world or world interface.
      */
     private static WorldInterceptor create(IBlockReader reader) {
-        WorldInterceptor interceptor = UnsafeUtil.allocate(WorldInterceptor.class);
+        WorldInterceptor interceptor = UnsafeUtil.allocate(IMPLEMENTATION);
         if (reader instanceof ServerWorld) {
             interceptor.copyWorldData((ServerWorld) reader);
             interceptor.copyServerData((ServerWorld) reader);
@@ -173,7 +248,6 @@ public class WorldInterceptor extends ServerWorld {
         interceptor.disableLevelSaving = true;
         interceptor.profiler = () -> EmptyProfiler.INSTANCE;
         interceptor.wrapped = new WeakReference<>(reader);
-        interceptor.data = ThreadLocal.withInitial(() -> new Data(interceptor));
         return interceptor;
     }
 
@@ -259,19 +333,21 @@ public class WorldInterceptor extends ServerWorld {
 
     /**
      * Returns the original world being wrapped by the interceptor after verifying that the
-     * reference is still valid.
+     * reference is still valid. This is called by every generated method.
      */
-    private IBlockReader getWrappedWorld() {
+    protected final IBlockReader getWrappedWorld() {
         return Objects.requireNonNull(wrapped.get(), "World reference has been culled.");
     }
 
     /**
-     * Returns the thread-local data defining everything being currently intercepted. While
-     * the return value of this function is guaranteed to be non-null, it is still imperative
-     * that callers verify the <em>members</em> of this value before using them.
+     * Returns the thread-local data defining everything being currently intercepted. If the
+     * current thread is primed for a different interceptor, an empty set of data is returned
+     * instead. While the return value of this function is guaranteed to be non-null, it is
+     * still imperative that callers verify the <em>members</em> of this value before using them.
      */
     private Data getData() {
-        return Objects.requireNonNull(this.data.get(), "Initial data supplier was missing.");
+        final Data data = DATA.get();
+        return data.interceptor == this ? data : UNPRIMED;
     }
 
     @Override
@@ -299,7 +375,7 @@ public class WorldInterceptor extends ServerWorld {
     public BlockState getBlockState(BlockPos pos) {
         final Data data = this.getData();
         final BlockState actual = this.getWrappedWorld().getBlockState(pos);
-        if (data.checkPos(pos) && actual.getBlock().equals(data.to)) {
+        if (data.checkPos(pos) && actual.getBlock() == data.to) {
             // We're expecting the actual block, but want to return the block being wrapped.
             return data.mapTo.apply(actual);
         }
@@ -311,7 +387,7 @@ public class WorldInterceptor extends ServerWorld {
         final Data data = this.getData();
         final IBlockReader reader = this.getWrappedWorld();
         if (reader instanceof IWorld) {
-            if (data.checkPos(pos) && state.getBlock().equals(data.from)) {
+            if (data.checkPos(pos) && state.getBlock() == data.from) {
                 // We're expecting the block being wrapped, but want to return the actual block.
                 state = data.mapFrom.apply(state);
             }
@@ -325,7 +401,7 @@ public class WorldInterceptor extends ServerWorld {
         final Data data = this.getData();
         final IBlockReader reader = this.getWrappedWorld();
         if (reader instanceof World) {
-            if (data.checkPos(pos) && block.equals(data.from)) {
+            if (data.checkPos(pos) && block == data.from) {
                 block = data.to;
             }
             ((World) reader).addBlockEvent(pos, block, eventID, eventParam);
@@ -347,10 +423,10 @@ public class WorldInterceptor extends ServerWorld {
         final IBlockReader reader = this.getWrappedWorld();
         if (reader instanceof World) {
             if (data.checkPos(pos)) {
-                if (oldState.getBlock().equals(data.from)) {
+                if (oldState.getBlock() == data.from) {
                     oldState = data.mapFrom.apply(oldState);
                 }
-                if (newState.getBlock().equals(data.from)) {
+                if (newState.getBlock() == data.from) {
                     newState = data.mapFrom.apply(newState);
                 }
             }
@@ -363,7 +439,7 @@ public class WorldInterceptor extends ServerWorld {
         final Data data = this.getData();
         final IBlockReader reader = this.getWrappedWorld();
         if (reader instanceof World) {
-            if (data.checkPos(pos) && block.equals(data.from)) {
+            if (data.checkPos(pos) && block == data.from) {
                 block = data.to;
             }
             ((World) reader).neighborChanged(pos, block, fromPos);
@@ -376,10 +452,10 @@ public class WorldInterceptor extends ServerWorld {
         final IBlockReader reader = this.getWrappedWorld();
         if (reader instanceof World) {
             if (data.checkPos(pos)) {
-                if (oldState.getBlock().equals(data.from)) {
+                if (oldState.getBlock() == data.from) {
                     oldState = data.mapFrom.apply(oldState);
                 }
-                if (newState.getBlock().equals(data.from)) {
+                if (newState.getBlock() == data.from) {
                     newState = data.mapFrom.apply(newState);
                 }
             }
@@ -406,7 +482,7 @@ public class WorldInterceptor extends ServerWorld {
         final IBlockReader reader = this.getWrappedWorld();
         if (reader instanceof World) {
             final Data data = this.getData();
-            if (data.checkPos(pos) && block.equals(data.from)) {
+            if (data.checkPos(pos) && block == data.from) {
                 block = data.to;
             }
             ((World) reader).updateComparatorOutputLevel(pos, block);
@@ -423,7 +499,7 @@ public class WorldInterceptor extends ServerWorld {
             if (entity instanceof FallingBlockEntity) {
                 final Data data = this.getData();
                 final FallingBlockEntity fbe = (FallingBlockEntity) entity;
-                if (fbe.fallTile.getBlock().equals(data.from)) {
+                if (fbe.fallTile.getBlock() == data.from) {
                     fbe.fallTile = data.mapFrom.apply(fbe.fallTile);
                 }
             } else if (entity instanceof MobEntity) {
@@ -784,6 +860,32 @@ public class WorldInterceptor extends ServerWorld {
         return 0;
     }
 
+    @Override
+    public void playEvent(@Nullable PlayerEntity player, int type, BlockPos pos, int data) {
+        final IBlockReader reader = this.getWrappedWorld();
+        if (reader instanceof IWorld) {
+            ((IWorld) reader).playEvent(player, type, pos, data);
+        }
+    }
+
+    @Override
+    public long getGameTime() {
+        final IBlockReader reader = this.getWrappedWorld();
+        if (reader instanceof World) {
+            return ((World) reader).getGameTime();
+        }
+        return 0;
+    }
+
+    @Override
+    public long getDayTime() {
+        final IBlockReader reader = this.getWrappedWorld();
+        if (reader instanceof World) {
+            return ((World) reader).getDayTime();
+        }
+        return 0;
+    }
+
     @Override
     public String toString() {
         return "WorldInterceptor[" + wrapped.get() + "]";
@@ -794,33 +896,47 @@ public class WorldInterceptor extends ServerWorld {
      * current thread.
      */
     public static class Data {
-        private final WorldInterceptor interceptor;
+        /** Indicates that blocks should be intercepted at any position. */
+        private static final long ANY_POS = Long.MIN_VALUE;
+
+        private WorldInterceptor interceptor = null;
         private Block from = Blocks.AIR;
         private Block to = Blocks.AIR;
-        private BlockPos pos = null;
+        private long pos = ANY_POS;
 
-        private final TickInterceptor tickInterceptor;
+        private final TickInterceptor tickInterceptor = new TickInterceptor();
         private Function<BlockState, BlockState> mapFrom = from -> from;
         private Function<BlockState, BlockState> mapTo = to -> to;
         private boolean isPrimed = false;
 
-        private Data(WorldInterceptor interceptor) {
-            this.interceptor = interceptor;
-            this.tickInterceptor = new TickInterceptor(interceptor);
-        }
+        /**
+         * The interceptor most recently primed in this thread, whose tick list is currently
+         * wrapped by {@link #tickInterceptor}. Tick lists never change for a given world, so they
+         * only need to be bound once per world. This also lets the thread skip the instance
+         * lookup while it keeps generating in the same world.
+         */
+        private WorldInterceptor last = null;
+
+        private Data() {}
 
         /**
          * Primes the interceptor to read blocks from a new {@link IBlockReader}. This can be used
          * whenever it is unknown whether the world object is a regular instance of {@link World}.
          *
+         * @param interceptor The interceptor wrapping this reader.
          * @param reader The object providing {@link BlockState}s.
          * @return <code>this</code>, for method chaining.
          */
-        private Data inWorld(IBlockReader reader) {
-            if (reader instanceof IWorld) {
-                final IWorld world = (IWorld) reader;
-                this.tickInterceptor.wrapping(world.getPendingBlockTicks());
+        private Data inWorld(WorldInterceptor interceptor, IBlockReader reader) {
+            if (this.last != interceptor) {
+                if (reader instanceof IWorld) {
+                    this.tickInterceptor.wrapping(((IWorld) reader).getPendingBlockTicks());
+                } else {
+                    this.tickInterceptor.wrapping(interceptor.pendingBlockTicks);
+                }
+                this.last = interceptor;
             }
+            this.interceptor = interceptor;
             this.isPrimed = true;
             return this;
         }
@@ -833,7 +949,7 @@ public class WorldInterceptor extends ServerWorld {
          * @return Whether to intercept this position at all.
          */
         private boolean checkPos(BlockPos pos) {
-            return this.isPrimed && (this.pos == null || this.pos == pos);
+            return this.isPrimed && (this.pos == ANY_POS || this.pos == pos.toLong());
         }
 
         /**
@@ -876,13 +992,13 @@ public class WorldInterceptor extends ServerWorld {
 
         /**
          * Primes the interceptor to only intercept block updates at the current location.
-         * This field is nullable and thus this function is optional.
+         * This function is optional.
          *
          * @param pos The current block position being intercepted.
          * @return <code>this</code>, for method chaining.
          */
         public Data onlyAt(BlockPos pos) {
-            this.pos = pos;
+            this.pos = pos.toLong();
             this.tickInterceptor.onlyAt(pos);
             return this;
         }
@@ -899,9 +1015,13 @@ public class WorldInterceptor extends ServerWorld {
         }
 
         /**
-         * Prevents the interceptor from replacing any unintended blocks.
+         * Prevents the interceptor from replacing any unintended blocks. The tick interceptor is
+         * kept, along with the tick list it is bound to, so that priming this thread for the
+         * same world again does not need to bind it again.
          */
         private void reset() {
+            this.interceptor = null;
+            this.pos = ANY_POS;
             this.from = Blocks.AIR;
             this.to = Blocks.AIR;
             this.tickInterceptor.reset();
@@ -909,5 +1029,11 @@ public class WorldInterceptor extends ServerWorld {
             this.mapTo = s -> s;
             this.isPrimed = false;
         }
+
+        /** Releases the tick list bound to this thread, so that the previous world may be unloaded. */
+        private void release() {
+            this.tickInterceptor.release();
+            this.last = null;
+        }
     }
 }
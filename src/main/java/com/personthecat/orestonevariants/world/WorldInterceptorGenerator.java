@@ -0,0 +1,263 @@
+package com.personthecat.orestonevariants.world;
+
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockReader;
+import net.minecraft.world.IWorldReader;
+import net.minecraft.world.IWorldWriter;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *   Generates a subclass of {@link WorldInterceptor} at runtime which forwards every remaining
+ * public {@link World} and world interface method directly to the world being wrapped. Each
+ * generated method checks the wrapped world against the single type which declares it and
+ * falls back to the original implementation when the world is not of that type.
+ *
+ *   Any method which reads or writes blocks is left alone. The interceptor implements those by
+ * hand, and inherited methods of that kind route back through the overridden accessors, which
+ * is where blocks are substituted.
+ */
+@Log4j2
+final class WorldInterceptorGenerator implements Opcodes {
+
+    /** The internal name of the class being generated. */
+    private static final String NAME = "com/personthecat/orestonevariants/world/GeneratedWorldInterceptor";
+
+    /** Methods which must never be forwarded, as they would affect the lifecycle of the real world. */
+    private static final List<String> EXCLUDED_NAMES = Arrays.asList("close", "guardEntityTick");
+
+    /** Parameters which indicate that a method may read or write blocks. */
+    private static final List<Class<?>> BLOCK_PARAMETERS =
+        Arrays.asList(BlockPos.class, BlockState.class, Block.class, FluidState.class);
+
+    private WorldInterceptorGenerator() {}
+
+    /**
+     * Generates the forwarding subclass. If the class cannot be generated for any reason, the
+     * hand-written interceptor is returned instead, which behaves exactly as it did before.
+     *
+     * @return The type of interceptor to allocate for every world.
+     */
+    static Class<? extends WorldInterceptor> generate() {
+        try {
+            final Map<String, Method> methods = getForwardedMethods();
+            final byte[] bytes = writeClass(methods.values());
+            final Class<?> generated = new Loader(WorldInterceptor.class.getClassLoader()).define(bytes);
+            log.info("Generated world interceptor forwarding {} methods.", methods.size());
+            return generated.asSubclass(WorldInterceptor.class);
+        } catch (RuntimeException | LinkageError e) {
+            log.error("Unable to generate world interceptor. Using defaults.", e);
+            return WorldInterceptor.class;
+        }
+    }
+
+    /** Collects every method to be forwarded, keyed by name and parameter descriptor. */
+    private static Map<String, Method> getForwardedMethods() {
+        final Map<String, Method> methods = new LinkedHashMap<>();
+        for (Method m : ServerWorld.class.getMethods()) {
+            if (!isForwarded(m)) {
+                continue;
+            }
+            final String key = m.getName() + Type.getMethodDescriptor(m).split("\\)")[0];
+            final Method existing = methods.get(key);
+            // Keep the most specific return type if the method is declared more than once.
+            if (existing == null || existing.getReturnType().isAssignableFrom(m.getReturnType())) {
+                methods.put(key, m);
+            }
+        }
+        return methods;
+    }
+
+    private static boolean isForwarded(Method m) {
+        final int modifiers = m.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || m.isSynthetic() || m.isBridge()) {
+            return false;
+        }
+        if (m.getDeclaringClass() == Object.class || !isWorldMethod(m)) {
+            return false;
+        }
+        if (EXCLUDED_NAMES.contains(m.getName()) || isDeclared(WorldInterceptor.class, m)) {
+            return false;
+        }
+        if (isDeclaredBy(IWorldReader.class, m) || isDeclaredBy(IWorldWriter.class, m)) {
+            return false;
+        }
+        for (Class<?> param : m.getParameterTypes()) {
+            if (BLOCK_PARAMETERS.contains(param)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Determines whether the method belongs to {@link World} or any world interface, rather than the server alone. */
+    private static boolean isWorldMethod(Method m) {
+        if (isDeclaredBy(World.class, m)) {
+            return true;
+        }
+        for (Class<?> type : ServerWorld.class.getInterfaces()) {
+            if (isDeclaredBy(type, m)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDeclared(Class<?> type, Method m) {
+        for (Method declared : type.getDeclaredMethods()) {
+            if (declared.getName().equals(m.getName()) && Arrays.equals(declared.getParameterTypes(), m.getParameterTypes())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDeclaredBy(Class<?> type, Method m) {
+        return getDeclaration(type, m) != null;
+    }
+
+    @Nullable
+    private static Method getDeclaration(Class<?> type, Method m) {
+        try {
+            return type.getMethod(m.getName(), m.getParameterTypes());
+        } catch (NoSuchMethodException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Locates the method which will be called on the wrapped world. This is the most general
+     * interface declaring the method, so that world generation regions and other partial worlds
+     * are forwarded as well. Otherwise, it is the declaration in {@link World} and then in
+     * {@link ServerWorld}. Only declarations returning the same type or a subtype are used,
+     * so that return values never need to be cast.
+     */
+    private static Method getTarget(Method m) {
+        for (Class<?> type : ServerWorld.class.getInterfaces()) {
+            final Method target = getRootDeclaration(type, m);
+            if (target != null) {
+                return target;
+            }
+        }
+        final Method declaration = getDeclaration(World.class, m);
+        if (declaration != null && m.getReturnType().isAssignableFrom(declaration.getReturnType())) {
+            return declaration;
+        }
+        return m;
+    }
+
+    @Nullable
+    private static Method getRootDeclaration(Class<?> type, Method m) {
+        for (Class<?> parent : type.getInterfaces()) {
+            final Method target = getRootDeclaration(parent, m);
+            if (target != null) {
+                return target;
+            }
+        }
+        for (Method declared : type.getDeclaredMethods()) {
+            if (!Modifier.isStatic(declared.getModifiers()) && declared.getName().equals(m.getName())
+                    && Arrays.equals(declared.getParameterTypes(), m.getParameterTypes())
+                    && m.getReturnType().isAssignableFrom(declared.getReturnType())) {
+                return declared;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] writeClass(Iterable<Method> methods) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            // No frames merge different types, so the generated class never needs to load any.
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        final String parent = Type.getInternalName(WorldInterceptor.class);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, NAME, null, parent, null);
+        for (Method m : methods) {
+            writeMethod(cw, parent, m, getTarget(m));
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Writes a single forwarding method, equivalent to:
+     *
+     * <pre>
+     *   final IBlockReader reader = this.getWrappedWorld();
+     *   if (reader instanceof Target) {
+     *       return ((Target) reader).method(args);
+     *   }
+     *   return super.method(args);
+     * </pre>
+     */
+    private static void writeMethod(ClassWriter cw, String parent, Method m, Method target) {
+        final String desc = Type.getMethodDescriptor(m);
+        final Type[] args = Type.getArgumentTypes(m);
+        final Type returnType = Type.getReturnType(m);
+        final String owner = Type.getInternalName(target.getDeclaringClass());
+        final boolean isInterface = target.getDeclaringClass().isInterface();
+        int local = 1;
+        for (Type arg : args) {
+            local += arg.getSize();
+        }
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, m.getName(), desc, null, null);
+        final Label fallback = new Label();
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, parent, "getWrappedWorld", Type.getMethodDescriptor(Type.getType(IBlockReader.class)), false);
+        mv.visitVarInsn(ASTORE, local);
+        mv.visitVarInsn(ALOAD, local);
+        mv.visitTypeInsn(INSTANCEOF, owner);
+        mv.visitJumpInsn(IFEQ, fallback);
+        mv.visitVarInsn(ALOAD, local);
+        mv.visitTypeInsn(CHECKCAST, owner);
+        loadArgs(mv, args);
+        mv.visitMethodInsn(isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL, owner, m.getName(), Type.getMethodDescriptor(target), isInterface);
+        mv.visitInsn(returnType.getOpcode(IRETURN));
+        mv.visitLabel(fallback);
+        mv.visitVarInsn(ALOAD, 0);
+        loadArgs(mv, args);
+        mv.visitMethodInsn(INVOKESPECIAL, parent, m.getName(), desc, false);
+        mv.visitInsn(returnType.getOpcode(IRETURN));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void loadArgs(MethodVisitor mv, Type[] args) {
+        int index = 1;
+        for (Type arg : args) {
+            mv.visitVarInsn(arg.getOpcode(ILOAD), index);
+            index += arg.getSize();
+        }
+    }
+
+    /** Defines the generated class as a child of the loader which provides the game classes. */
+    private static class Loader extends ClassLoader {
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(byte[] bytes) {
+            return defineClass(NAME.replace('/', '.'), bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.personthecat.orestonevariants.blocks;
+
+import net.minecraft.enchantment.Enchantments;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.loot.ConstantRange;
+import net.minecraft.loot.ItemLootEntry;
+import net.minecraft.loot.LootContext;
+import net.minecraft.loot.LootParameterSet;
+import net.minecraft.loot.LootParameters;
+import net.minecraft.loot.LootPool;
+import net.minecraft.loot.LootPredicateManager;
+import net.minecraft.loot.LootTable;
+import net.minecraft.loot.LootTableManager;
+import net.minecraft.loot.LootTables;
+import net.minecraft.loot.RandomValueRange;
+import net.minecraft.loot.functions.ApplyBonus;
+import net.minecraft.loot.functions.SetCount;
+import net.minecraft.resources.DataPackRegistries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.dedicated.DedicatedServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.common.ForgeInternalHandler;
+import net.minecraftforge.common.loot.LootModifierManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Verifies that rolling every dense drop from a single {@link LootContext}, as
+ * {@link OreVariant#getDrops} does, produces the same distribution of drops as the original
+ * implementation, which built a new context for every roll.
+ *
+ *  Drops are generated through the same static functions used by each variant, from a table
+ * equivalent to vanilla lapis ore, which has random counts and a fortune bonus, using the
+ * default dense drop settings. The table is looked up by id through a minimal server, exactly
+ * as it would be for a block without custom drops.
+ */
+class OreVariantDropsTest {
+
+    /** The number of blocks broken by each implementation. */
+    private static final int TRIALS = 20_000;
+
+    /** The default values of each dense drop setting. */
+    private static final int MULTIPLIER = 3;
+    private static final int MULTIPLIER_MIN = 1;
+
+    /** The chi-squared statistic must be below this critical value, given the degrees of freedom. */
+    private static final double Z_CRITICAL = 3.09; // p = 0.001
+
+    /** The id of the loot table being tested. */
+    private static final ResourceLocation TABLE_ID = new ResourceLocation("osv", "blocks/test_lapis_ore");
+
+    /** Loot contexts in this test only need a tool. */
+    private static final LootParameterSet PARAMETERS = new LootParameterSet.Builder()
+        .required(LootParameters.TOOL)
+        .build();
+
+    private static ServerWorld world;
+    private static ItemStack tool;
+
+    @BeforeAll
+    static void setup() throws ReflectiveOperationException {
+        Bootstrap.register();
+        final LootTable table = LootTable.builder()
+            .addLootPool(LootPool.builder()
+                .rolls(ConstantRange.of(1))
+                .addEntry(ItemLootEntry.builder(Items.LAPIS_LAZULI)
+                    .acceptFunction(SetCount.builder(RandomValueRange.of(4.0F, 9.0F)))
+                    .acceptFunction(ApplyBonus.oreDrops(Enchantments.FORTUNE))))
+            .build();
+        world = createWorld(table);
+        tool = new ItemStack(Items.DIAMOND_PICKAXE);
+        tool.addEnchantment(Enchantments.FORTUNE, 3);
+    }
+
+    @Test
+    void sharedContext_isIdenticalForSameRandom() {
+        final Random seeds = new Random(0L);
+        for (int i = 0; i < TRIALS / 10; i++) {
+            final long seed = seeds.nextLong();
+            // Blocks normally build every context with the world's random.
+            final Random a = new Random(seed);
+            final Random b = new Random(seed);
+            final int expected = count(rollPerContext(() -> a, getOriginalDenseRolls(new Random(seed))));
+            final int actual = count(rollShared(b, OreVariant.getDenseRolls(new Random(seed), MULTIPLIER, MULTIPLIER_MIN, true)));
+            assertEquals(expected, actual, "Drops differ for seed " + seed);
+        }
+    }
+
+    @Test
+    void sharedContext_hasSameDistribution() {
+        final Map<Integer, int[]> histogram = new HashMap<>();
+        final Random original = new Random(1L);
+        final Random shared = new Random(2L);
+        for (int i = 0; i < TRIALS; i++) {
+            // The builder may have no random, in which case each context has its own.
+            final int originalRolls = getOriginalDenseRolls(original);
+            final int sharedRolls = OreVariant.getDenseRolls(shared, MULTIPLIER, MULTIPLIER_MIN, true);
+            histogram.computeIfAbsent(count(rollPerContext(() -> new Random(original.nextLong()), originalRolls)), c -> new int[2])[0]++;
+            histogram.computeIfAbsent(count(rollShared(new Random(shared.nextLong()), sharedRolls)), c -> new int[2])[1]++;
+        }
+        final List<int[]> bins = merge(histogram);
+        final double chiSquared = getChiSquared(bins);
+        final double critical = getCriticalValue(bins.size() - 1);
+        assertTrue(chiSquared < critical, () -> "Distributions differ: X^2 = " + chiSquared + ", critical = " + critical);
+    }
+
+    @Test
+    void getDenseRolls_matchesOriginal() {
+        for (int multiplier = 0; multiplier <= 5; multiplier++) {
+            for (int min = 0; min <= 5; min++) {
+                for (int seed = 0; seed < 100; seed++) {
+                    final Random a = new Random(seed);
+                    final Random b = new Random(seed);
+                    assertEquals(getOriginalDenseRolls(a, multiplier, min, true), OreVariant.getDenseRolls(b, multiplier, min, true));
+                    assertEquals(getOriginalDenseRolls(a, multiplier, min, false), OreVariant.getDenseRolls(b, multiplier, min, false));
+                }
+            }
+        }
+    }
+
+    @Test
+    void emptyTable_dropsNothing() {
+        final LootContext ctx = createContext(new Random(0L));
+        final List<ItemStack> items = OreVariant.rollDrops(OreVariant.getLookupTable(LootTables.EMPTY, ctx), ctx, MULTIPLIER);
+        assertTrue(items.isEmpty());
+        // Self drops are substituted in place, so the list must be mutable.
+        items.add(new ItemStack(Items.LAPIS_ORE));
+    }
+
+    @Test
+    void removeDuplicates_keepsFirstMatch() {
+        final List<ItemStack> items = new ArrayList<>(Arrays.asList(
+            new ItemStack(Items.LAPIS_LAZULI, 4),
+            new ItemStack(Items.LAPIS_ORE),
+            new ItemStack(Items.LAPIS_LAZULI, 5),
+            new ItemStack(Items.LAPIS_ORE),
+            new ItemStack(Items.LAPIS_ORE)));
+        OreVariant.removeDuplicates(items, item -> item == Items.LAPIS_ORE);
+        assertEquals(3, items.size());
+        assertEquals(Items.LAPIS_LAZULI, items.get(0).getItem());
+        assertEquals(Items.LAPIS_ORE, items.get(1).getItem());
+        assertEquals(5, items.get(2).getCount());
+    }
+
+    /**
+     * Rolls the base drop and each dense drop with a new context each time, looking up the table
+     * from the server every time, as the original implementation did.
+     */
+    private static List<ItemStack> rollPerContext(Supplier<Random> rand, int rolls) {
+        final List<ItemStack> items = new ArrayList<>(getOriginalLookupDrops(createContext(rand.get())));
+        for (int i = 0; i < rolls; i++) {
+            items.addAll(getOriginalLookupDrops(createContext(rand.get())));
+        }
+        return items;
+    }
+
+    private static List<ItemStack> getOriginalLookupDrops(LootContext ctx) {
+        return ctx.getWorld().getServer().getLootTableManager().getLootTableFromLocation(TABLE_ID).generate(ctx);
+    }
+
+    /** Rolls the base drop and each dense drop from a single context, as the current implementation does. */
+    private static List<ItemStack> rollShared(Random rand, int rolls) {
+        final LootContext ctx = createContext(rand);
+        return OreVariant.rollDrops(OreVariant.getLookupTable(TABLE_ID, ctx), ctx, rolls);
+    }
+
+    private static int getOriginalDenseRolls(Random rand) {
+        return getOriginalDenseRolls(rand, MULTIPLIER, MULTIPLIER_MIN, true);
+    }
+
+    /** Chooses the number of additional rolls for a dense variant, as the original implementation did. */
+    private static int getOriginalDenseRolls(Random rand, int multiplier, int min, boolean randomCount) {
+        int count = multiplier;
+        if (randomCount) {
+            count = rand.nextInt(count + 1);
+        }
+        if (count < min) {
+            count = min;
+        }
+        return count;
+    }
+
+    private static int count(List<ItemStack> items) {
+        int count = 0;
+        for (ItemStack item : items) {
+            count += item.getCount();
+        }
+        return count;
+    }
+
+    /** Sorts the histogram by count, merging any bins with too few observations into the next. */
+    private static List<int[]> merge(Map<Integer, int[]> histogram) {
+        final List<Integer> keys = new ArrayList<>(histogram.keySet());
+        Collections.sort(keys);
+        final List<int[]> bins = new ArrayList<>();
+        int[] current = new int[2];
+        for (int key : keys) {
+            current[0] += histogram.get(key)[0];
+            current[1] += histogram.get(key)[1];
+            if (current[0] + current[1] >= 20) {
+                bins.add(current);
+                current = new int[2];
+            }
+        }
+        if (current[0] + current[1] > 0) {
+            bins.add(current);
+        }
+        return bins;
+    }
+
+    /** Calculates the two-sample chi-squared statistic for equal sample sizes. */
+    private static double getChiSquared(List<int[]> bins) {
+        double sum = 0.0;
+        for (int[] bin : bins) {
+            sum += (double) (bin[0] - bin[1]) * (bin[0] - bin[1]) / (bin[0] + bin[1]);
+        }
+        return sum;
+    }
+
+    /** Approximates the critical value of the chi-squared distribution using Wilson-Hilferty. */
+    private static double getCriticalValue(int df) {
+        final double k = 2.0 / (9.0 * Math.max(1, df));
+        return Math.max(1, df) * Math.pow(1.0 - k + Z_CRITICAL * Math.sqrt(k), 3);
+    }
+
+    private static LootContext createContext(Random rand) {
+        return new LootContext.Builder(world)
+            .withRandom(rand)
+            .withParameter(LootParameters.TOOL, tool)
+            .build(PARAMETERS);
+    }
+
+    /**
+     * Creates a world whose server only provides loot tables, containing the given table, and
+     * an empty set of global loot modifiers. None of these objects can be constructed outside
+     * of a running server, so they are allocated directly and only the fields read when
+     * generating loot are populated. Fields are located by type, as their names depend on the
+     * current mappings.
+     */
+    private static ServerWorld createWorld(LootTable table) throws ReflectiveOperationException {
+        final Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        final Unsafe unsafe = (Unsafe) theUnsafe.get(null);
+
+        final LootPredicateManager predicates = new LootPredicateManager();
+        final LootTableManager tables = new LootTableManager(predicates);
+        setField(LootTableManager.class, tables, Map.class, Collections.singletonMap(TABLE_ID, table));
+
+        final DataPackRegistries registries = (DataPackRegistries) unsafe.allocateInstance(DataPackRegistries.class);
+        setField(DataPackRegistries.class, registries, LootTableManager.class, tables);
+        setField(DataPackRegistries.class, registries, LootPredicateManager.class, predicates);
+
+        final MinecraftServer server = (MinecraftServer) unsafe.allocateInstance(DedicatedServer.class);
+        setField(MinecraftServer.class, server, DataPackRegistries.class, registries);
+
+        final ServerWorld world = (ServerWorld) unsafe.allocateInstance(ServerWorld.class);
+        setField(ServerWorld.class, world, MinecraftServer.class, server);
+
+        // Loot tables always apply global modifiers, which are normally loaded with data packs.
+        setField(ForgeInternalHandler.class, null, LootModifierManager.class, new LootModifierManager());
+        return world;
+    }
+
+    /** Sets the only field of the given type declared by the owner. */
+    private static void setField(Class<?> owner, Object instance, Class<?> type, Object value) throws ReflectiveOperationException {
+        for (Field f : owner.getDeclaredFields()) {
+            if (f.getType() == type && Modifier.isStatic(f.getModifiers()) == (instance == null)) {
+                f.setAccessible(true);
+                f.set(instance, value);
+                return;
+            }
+        }
+        throw new NoSuchFieldException(owner.getSimpleName() + " has no field of type " + type.getSimpleName());
+    }
+}
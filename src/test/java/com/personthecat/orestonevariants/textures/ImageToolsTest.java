@@ -0,0 +1,196 @@
+package com.personthecat.orestonevariants.textures;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  Verifies that every algorithm in {@link ImageTools} produces exactly the same pixels as the
+ * original implementation in {@link ColorMatrixImageTools}. Images are generated randomly with
+ * a mix of similar and unrelated colors and with every alpha level which the algorithms treat
+ * differently, at the sizes used by vanilla and HD resource packs. Encoded images must also
+ * match the bytes written by the original call to {@link ImageIO#write}.
+ */
+class ImageToolsTest {
+
+    /** The number of random images tested at each size. */
+    private static final int ITERATIONS = 100;
+
+    /** Alpha levels on either side of each threshold used by the algorithms. */
+    private static final int[] ALPHAS = { 0, 17, 34, 50, 51, 200, 255 };
+
+    /** The width and height of each background, followed by the width and height of each foreground. */
+    private static final int[][] SIZES = {
+        { 16, 16, 16, 16 },   // Equal sizes
+        { 16, 16, 16, 48 },   // Animated foreground
+        { 16, 16, 32, 32 },   // HD foreground
+        { 32, 32, 16, 64 },   // HD background, animated foreground
+        { 64, 64, 128, 384 }  // Large, animated foreground
+    };
+
+    private final Random rand = new Random(0L);
+
+    @Test
+    void ensureSizeParity_matchesOriginal() {
+        forEachImage((bg, fg, mask) -> {
+            final Color[][] expected = ColorMatrixImageTools.ensureSizeParity(colors(bg), colors(fg));
+            assertSame("ensureSizeParity", expected, ImageTools.ensureSizeParity(argb(bg), argb(fg)));
+        });
+    }
+
+    @Test
+    void getOverlay_matchesOriginal() {
+        forEachImage((bg, fg, mask) -> {
+            final Color[][] bgScaled = ColorMatrixImageTools.ensureSizeParity(colors(bg), colors(fg));
+            final Color[][] expected = ColorMatrixImageTools.getOverlay(bgScaled, colors(fg));
+            final ArgbImage actual = ImageTools.getOverlay(ImageTools.ensureSizeParity(argb(bg), argb(fg)), argb(fg));
+            assertSame("getOverlay", expected, actual);
+        });
+    }
+
+    @Test
+    void getOverlayManual_matchesOriginal() {
+        forEachImage((bg, fg, mask) -> {
+            final Color[][] bgScaled = ColorMatrixImageTools.ensureSizeParity(colors(bg), colors(fg));
+            final Color[][] expected = ColorMatrixImageTools.getOverlayManual(bgScaled, colors(fg), 0.3);
+            final ArgbImage actual = ImageTools.getOverlayManual(ImageTools.ensureSizeParity(argb(bg), argb(fg)), argb(fg), 0.3);
+            assertSame("getOverlayManual", expected, actual);
+        });
+    }
+
+    @Test
+    void shiftImage_matchesOriginal() {
+        forEachImage((bg, fg, mask) -> {
+            final Color[][] expected = ColorMatrixImageTools.shiftImage(colors(fg));
+            assertSame("shiftImage", expected, ImageTools.shiftImage(argb(fg)));
+        });
+    }
+
+    @Test
+    void shadeOverlay_matchesOriginal() {
+        forEachImage((bg, fg, mask) -> {
+            final Color[][] bgScaled = ColorMatrixImageTools.ensureSizeParity(colors(bg), colors(fg));
+            final Color[][] overlay = ColorMatrixImageTools.getOverlay(bgScaled, colors(fg));
+            final Color[][] expected = ColorMatrixImageTools.shadeOverlay(overlay, bgScaled, colors(fg), colors(mask));
+
+            final ArgbImage bgScaledArgb = ImageTools.ensureSizeParity(argb(bg), argb(fg));
+            final ArgbImage maskScaledArgb = ImageTools.ensureSizeParity(argb(mask), argb(fg));
+            final ArgbImage overlayArgb = ImageTools.getOverlay(bgScaledArgb, argb(fg));
+            final ArgbImage actual = ImageTools.shadeOverlay(overlayArgb, bgScaledArgb, argb(fg), maskScaledArgb);
+            assertSame("shadeOverlay", expected, actual);
+        });
+    }
+
+    @Test
+    void shadeOverlay_withCachedInputs_matchesOriginal() {
+        // Backgrounds and masks are scaled once and then shared by every foreground of each size.
+        final BackgroundCache cache = new BackgroundCache(Long.MAX_VALUE);
+        final BufferedImage mask = randomImage(16, 16, false);
+        final BackgroundCache.Texture maskTexture = new BackgroundCache.Texture(null, argb(mask));
+        final int[] maskPixels = maskTexture.image.pixels.clone();
+        final int[] count = { 0 };
+        forEachImage((bg, fg, unused) -> {
+            final Color[][] bgScaled = ColorMatrixImageTools.ensureSizeParity(colors(bg), colors(fg));
+            final Color[][] overlay = ColorMatrixImageTools.getOverlay(bgScaled, colors(fg));
+            final Color[][] expected = ColorMatrixImageTools.shadeOverlay(overlay, bgScaled, colors(fg), colors(mask));
+
+            final String path = "bg_" + count[0]++;
+            final ArgbImage fgArgb = argb(fg);
+            final ArgbImage bgCached = cache.getScaled(path, new BackgroundCache.Texture(null, argb(bg)), fgArgb);
+            final int[] bgPixels = bgCached.pixels.clone();
+            final ArgbImage maskCached = cache.getScaled("mask", maskTexture, fgArgb);
+            final ArgbImage overlayArgb = ImageTools.getOverlay(bgCached, fgArgb);
+            final ArgbImage actual = ImageTools.shadeOverlay(overlayArgb, bgCached, fgArgb, maskCached);
+
+            assertSame("shadeOverlay", expected, actual);
+            assertArrayEquals(bgPixels, bgCached.pixels, "Cached background was modified");
+        });
+        assertArrayEquals(maskPixels, maskTexture.image.pixels, "Mask was modified");
+    }
+
+    @Test
+    void isTranslucent_matchesOriginal() {
+        forEachImage((bg, fg, mask) ->
+            assertEquals(ColorMatrixImageTools.isTranslucent(colors(fg)), ImageTools.isTranslucent(argb(fg))));
+    }
+
+    @Test
+    void writePng_matchesImageIO() throws IOException {
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int[] size : SIZES) {
+                final ArgbImage image = argb(randomImage(size[2], size[3], i % 2 == 0));
+                final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                ImageIO.write(ImageTools.getImage(image), "png", expected);
+                final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                ImageTools.writePng(image, -1, actual);
+                assertArrayEquals(expected.toByteArray(), actual.toByteArray(), "writePng: bytes");
+            }
+        }
+    }
+
+    /** Runs the test for a number of random backgrounds, foregrounds, and masks at every size. */
+    private void forEachImage(ImageTest test) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int[] size : SIZES) {
+                final BufferedImage bg = randomImage(size[0], size[1], i % 2 == 0);
+                final BufferedImage fg = randomImage(size[2], size[3], (i / 2) % 2 == 0);
+                final BufferedImage mask = randomImage(size[0], size[1], false);
+                test.run(bg, fg, mask);
+            }
+        }
+    }
+
+    /**
+     * Generates an image in which most pixels are similar to a single base color.
+     *
+     * @param opaque Whether every pixel should be fully opaque.
+     */
+    private BufferedImage randomImage(int w, int h, boolean opaque) {
+        final BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        final int base = rand.nextInt();
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                final int a = opaque ? 255 : ALPHAS[rand.nextInt(ALPHAS.length)];
+                final int c = rand.nextInt(4) == 0 ? rand.nextInt() : base + rand.nextInt(0x202020);
+                image.setRGB(x, y, (a << 24) | (c & 0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    private static Color[][] colors(BufferedImage image) {
+        return ColorMatrixImageTools.getColors(image);
+    }
+
+    private static ArgbImage argb(BufferedImage image) {
+        return ImageTools.getColors(image);
+    }
+
+    /** Asserts that both images have the same dimensions and exactly the same pixels. */
+    private static void assertSame(String name, Color[][] expected, ArgbImage actual) {
+        final int w = expected.length;
+        final int h = expected[0].length;
+        assertEquals(w, actual.width, name + ": width");
+        assertEquals(h, actual.height, name + ": height");
+        final int[] pixels = new int[w * h];
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                pixels[y * w + x] = expected[x][y].getRGB();
+            }
+        }
+        assertArrayEquals(pixels, actual.pixels, name + ": pixels");
+    }
+
+    @FunctionalInterface
+    private interface ImageTest {
+        void run(BufferedImage bg, BufferedImage fg, BufferedImage mask);
+    }
+}
@@ -0,0 +1,218 @@
+package com.personthecat.orestonevariants.world;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static net.minecraft.util.math.MathHelper.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  Verifies that {@link VeinGeometry} visits exactly the same positions, in the same order, as
+ * the original placement loop in {@link VariantFeature}. Because random values are consumed once
+ * per position, this guarantees that the same blocks are placed for any given seed.
+ *
+ *  Sphere draining is also compared against the original pairwise comparison, to verify that
+ * only comparing spheres within the drain window never changes which spheres survive.
+ */
+class VeinGeometryTest {
+
+    /** The number of clusters tested for each size. */
+    private static final int SEEDS = 250;
+
+    /** Covers every size used by the default presets, including large stone veins. */
+    private static final int MAX_SIZE = 64;
+
+    @Test
+    void rasterize_matchesOriginalPlacement() {
+        final VeinGeometry.Spheres spheres = new VeinGeometry.Spheres();
+        final Random seeds = new Random(0L);
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            for (int i = 0; i < SEEDS; i++) {
+                final long seed = seeds.nextLong();
+                final Cluster cluster = new Cluster(new Random(seed), randomPos(seeds), size);
+                final LongList expected = cluster.getOriginalPositions(new Random(seed));
+                final LongList actual = cluster.getPositions(spheres, new Random(seed));
+                assertEquals(expected, actual, () -> "Positions differ for size " + cluster.size + ", seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void getValues_drainsSameSpheres() {
+        final VeinGeometry.Spheres spheres = new VeinGeometry.Spheres();
+        final Random seeds = new Random(1L);
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            for (int i = 0; i < SEEDS; i++) {
+                final long seed = seeds.nextLong();
+                final Cluster cluster = new Cluster(new Random(seed), randomPos(seeds), size);
+                final double[] expected = cluster.getOriginalValues(new Random(seed));
+                VeinGeometry.getValues(spheres.ensureCapacity(size), new Random(seed), size,
+                    cluster.aX, cluster.bX, cluster.aY, cluster.bY, cluster.aZ, cluster.bZ);
+                assertArrayEquals(expected, interleave(spheres, size), () -> "Spheres differ for size " + cluster.size + ", seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void drainOutOfBounds_matchesPairwiseComparison() {
+        final Random rand = new Random(2L);
+        for (int i = 0; i < SEEDS * 8; i++) {
+            final int size = 1 + rand.nextInt(MAX_SIZE);
+            // Short steps and wide ranges of radii produce the largest windows.
+            final double step = rand.nextInt(4) == 0 ? 0.0 : rand.nextDouble() * 2.0;
+            final double maxRadius = 0.5 + rand.nextDouble() * 6.0;
+            final double dy = rand.nextDouble() * 4.0 - 2.0;
+            final VeinGeometry.Spheres spheres = new VeinGeometry.Spheres().ensureCapacity(size);
+            final double[] expected = new double[size * 4];
+            for (int j = 0; j < size; j++) {
+                spheres.xs[j] = expected[j * 4] = j * step;
+                spheres.ys[j] = expected[j * 4 + 1] = j * dy / size;
+                spheres.zs[j] = expected[j * 4 + 2] = 0.0;
+                spheres.rs[j] = expected[j * 4 + 3] = rand.nextDouble() * maxRadius;
+            }
+            drainPairwise(expected, size);
+            VeinGeometry.drainOutOfBounds(spheres, size, step);
+            final int s = size;
+            assertArrayEquals(expected, interleave(spheres, size), () -> "Spheres differ for size " + s + ", step " + step);
+        }
+    }
+
+    /** Writes the spheres into a single array in the layout used by the original implementation. */
+    private static double[] interleave(VeinGeometry.Spheres spheres, int size) {
+        final double[] values = new double[size * 4];
+        for (int i = 0; i < size; i++) {
+            values[i * 4] = spheres.xs[i];
+            values[i * 4 + 1] = spheres.ys[i];
+            values[i * 4 + 2] = spheres.zs[i];
+            values[i * 4 + 3] = spheres.rs[i];
+        }
+        return values;
+    }
+
+    /** Drains spheres exactly as the original implementation did, by comparing every pair. */
+    private static void drainPairwise(double[] values, int size) {
+        for (int i = 0; i < size - 1; i++) {
+            if (values[i * 4 + 3] > 0.0D) {
+                for (int j = i + 1; j < size; j++) {
+                    if (values[j * 4 + 3] > 0.0D) {
+                        final double distX = values[i * 4] - values[j * 4];
+                        final double distY = values[i * 4 + 1] - values[j * 4 + 1];
+                        final double distZ = values[i * 4 + 2] - values[j * 4 + 2];
+                        final double radius = values[i * 4 + 3] - values[j * 4 + 3];
+                        if (radius * radius > distX * distX + distY * distY + distZ * distZ) {
+                            if (radius > 0.0D) {
+                                values[j * 4 + 3] = -1.0D;
+                            } else {
+                                values[i * 4 + 3] = -1.0D;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Generates a position anywhere in the world, including near its borders. */
+    private static BlockPos randomPos(Random rand) {
+        return new BlockPos(rand.nextInt(60_000_000) - 30_000_000, rand.nextInt(256), rand.nextInt(60_000_000) - 30_000_000);
+    }
+
+    /** The endpoints and bounding box of a single cluster, calculated as in {@link VariantFeature}. */
+    static class Cluster {
+        final int size;
+        final double aX, bX, aY, bY, aZ, bZ;
+        final int startX, startY, startZ;
+        final int offset, diameter;
+
+        Cluster(Random rand, BlockPos pos, int size) {
+            final float randPI = rand.nextFloat() * (float) Math.PI;
+            final float sizeA = (float) size / 8.0F;
+            final float sinSizeA = sin(randPI) * sizeA;
+            final float cosSizeA = cos(randPI) * sizeA;
+            final int sizeB = ceil((sizeA + 1.0F) / 2.0F);
+
+            this.size = size;
+            this.aX = (float) pos.getX() + sinSizeA;
+            this.bX = (float) pos.getX() - sinSizeA;
+            this.aZ = (float) pos.getZ() + cosSizeA;
+            this.bZ = (float) pos.getZ() - cosSizeA;
+            this.aY = pos.getY() + rand.nextInt(3) - 2;
+            this.bY = pos.getY() + rand.nextInt(3) - 2;
+            this.startX = pos.getX() - ceil(sizeA) - sizeB;
+            this.startY = pos.getY() - 2 - sizeB;
+            this.startZ = pos.getZ() - ceil(sizeA) - sizeB;
+            this.offset = 2 * (ceil(sizeA) + sizeB);
+            this.diameter = 2 * (2 + sizeB);
+        }
+
+        /** Generates every position using the current geometry. */
+        LongList getPositions(VeinGeometry.Spheres spheres, Random rand) {
+            VeinGeometry.getValues(spheres.ensureCapacity(size), rand, size, aX, bX, aY, bY, aZ, bZ);
+            return VeinGeometry.rasterize(spheres, size, new BitSet(), startX, startY, startZ, offset, diameter, new LongArrayList());
+        }
+
+        /** Generates the spheres exactly as the original implementation did. */
+        double[] getOriginalValues(Random rand) {
+            final double[] values = new double[size * 4];
+            for (int i = 0; i < size; i++) {
+                final double fraction = (double) i / (double) size;
+                values[i * 4] = lerp(fraction, aX, bX);
+                values[i * 4 + 1] = lerp(fraction, aY, bY);
+                values[i * 4 + 2] = lerp(fraction, aZ, bZ);
+                final double diameter = rand.nextDouble() * (double) size / 16.0D;
+                values[i * 4 + 3] = ((sin((float) (Math.PI * fraction)) + 1.0F) * diameter + 1.0D) / 2.0D;
+            }
+            drainPairwise(values, size);
+            return values;
+        }
+
+        /** Visits every position exactly as the original placement loop did. */
+        LongList getOriginalPositions(Random rand) {
+            final double[] values = getOriginalValues(rand);
+            final BitSet flags = new BitSet(offset * diameter * offset);
+            final LongList positions = new LongArrayList();
+            for (int i = 0; i < size; i++) {
+                final double radius = values[i * 4 + 3];
+                if (radius >= 0.0D) {
+                    final double centerX = values[i * 4];
+                    final double centerY = values[i * 4 + 1];
+                    final double centerZ = values[i * 4 + 2];
+                    final int minX = Math.max(floor(centerX - radius), startX);
+                    final int minY = Math.max(floor(centerY - radius), startY);
+                    final int minZ = Math.max(floor(centerZ - radius), startZ);
+                    final int maxX = Math.max(floor(centerX + radius), minX);
+                    final int maxY = Math.max(floor(centerY + radius), minY);
+                    final int maxZ = Math.max(floor(centerZ + radius), minZ);
+
+                    for (int x = minX; x <= maxX; x++) {
+                        final double finalX = ((double) x + 0.5D - centerX) / radius;
+                        if (finalX * finalX < 1.0D) {
+                            for (int y = minY; y <= maxY; y++) {
+                                final double finalY = ((double) y + 0.5D - centerY) / radius;
+                                if (finalX * finalX + finalY * finalY < 1.0D) {
+                                    for (int z = minZ; z <= maxZ; z++) {
+                                        final double finalZ = ((double) z + 0.5D - centerZ) / radius;
+                                        if (finalX * finalX + finalY * finalY + finalZ * finalZ < 1.0D) {
+                                            final int flag = x - startX + (y - startY) * offset + (z - startZ) * offset * diameter;
+                                            if (!flags.get(flag)) {
+                                                flags.set(flag);
+                                                positions.add(BlockPos.pack(x, y, z));
+                                            }
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return positions;
+        }
+    }
+}